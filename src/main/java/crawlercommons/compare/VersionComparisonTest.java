@@ -0,0 +1,372 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.compare;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.netpreserve.jwarc.WarcResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import crawlercommons.warcutils.ChildFirstClassLoader;
+import crawlercommons.warcutils.PayloadCorpus;
+import crawlercommons.warcutils.Statistics;
+import crawlercommons.warcutils.WarcTestProcessor;
+
+/**
+ * Compare two crawler-commons versions side by side: both versions are loaded
+ * in isolated class loaders and run alternately (A-B, B-A, ...) on the same
+ * in-memory payloads. Reports the throughput difference with a 95% confidence
+ * interval and the documents where the parser output differs.
+ */
+public class VersionComparisonTest extends WarcTestProcessor {
+
+    private static Logger LOG = LoggerFactory.getLogger(VersionComparisonTest.class);
+
+    protected String mode = System.getProperty("compare.mode", "sitemaps");
+    protected int rounds = Integer.getInteger("compare.rounds", 10);
+    protected int warmupRounds = Integer.getInteger("compare.warmup", 2);
+    protected int maxDocuments = Integer.getInteger("compare.maxDocuments", 0);
+    protected int maxDifferencesLogged = Integer.getInteger("compare.logDifferences", 20);
+
+    protected List<Payload> payloads = new ArrayList<>();
+    protected long payloadBytes = 0;
+
+    /** keeps parse results reachable, so that parsing cannot be eliminated */
+    protected volatile Object sink;
+
+    protected static class Payload {
+        String url;
+        URL parsedUrl;
+        String contentType;
+        byte[] content;
+    }
+
+    /** crawler-commons parser of one version, accessed via reflection */
+    protected abstract static class VersionedParser {
+        final String jar;
+        final ClassLoader loader;
+        final String version;
+
+        VersionedParser(String jar) throws ReflectiveOperationException, MalformedURLException {
+            this.jar = jar;
+            loader = new ChildFirstClassLoader(new URL[] { Paths.get(jar).toUri().toURL() },
+                    VersionComparisonTest.class.getClassLoader());
+            version = (String) loader.loadClass("crawlercommons.CrawlerCommons").getMethod("getVersion").invoke(null);
+        }
+
+        /** @return parse result or the exception thrown by the parser */
+        abstract Object parse(Payload p);
+
+        /** @return kind (sitemap type, robots.txt classification) and detail (number of URLs) */
+        abstract String[] outcome(Object result) throws ReflectiveOperationException;
+
+        protected Object invoke(Method m, Object obj, Object... args) {
+            try {
+                return m.invoke(obj, args);
+            } catch (InvocationTargetException e) {
+                return e.getCause();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        protected static Object call(Object obj, String method) throws ReflectiveOperationException {
+            return obj.getClass().getMethod(method).invoke(obj);
+        }
+
+        @Override
+        public String toString() {
+            return "crawler-commons " + version + " (" + jar + ")";
+        }
+    }
+
+    protected static class SitemapParserVersion extends VersionedParser {
+        private Object parser;
+        private Method parseSiteMap;
+
+        SitemapParserVersion(String jar) throws ReflectiveOperationException, MalformedURLException {
+            super(jar);
+            boolean strict = Boolean.valueOf(System.getProperty("sitemap.strict"));
+            boolean partial = Boolean.valueOf(System.getProperty("sitemap.partial"));
+            Class<?> parserClass = loader.loadClass("crawlercommons.sitemaps.SiteMapParser");
+            parser = parserClass.getConstructor(boolean.class, boolean.class).newInstance(strict, partial);
+            if (Boolean.valueOf(System.getProperty("sitemap.strictNamespace"))) {
+                parserClass.getMethod("setStrictNamespace", boolean.class).invoke(parser, true);
+            }
+            if (Boolean.valueOf(System.getProperty("sitemap.extensions"))) {
+                try {
+                    parserClass.getMethod("enableExtensions").invoke(parser);
+                    parserClass.getMethod("setStrictNamespace", boolean.class).invoke(parser, true);
+                } catch (NoSuchMethodException e) {
+                    LOG.warn("Sitemap extensions not supported by crawler-commons {}", version);
+                }
+            }
+            parseSiteMap = parserClass.getMethod("parseSiteMap", byte[].class, URL.class);
+        }
+
+        @Override
+        Object parse(Payload p) {
+            return invoke(parseSiteMap, parser, p.content, p.parsedUrl);
+        }
+
+        @Override
+        String[] outcome(Object result) throws ReflectiveOperationException {
+            if (result instanceof Throwable) {
+                return new String[] { "failed (" + result.getClass().getSimpleName() + ")", "" };
+            }
+            if ((Boolean) call(result, "isIndex")) {
+                return new String[] { "INDEX", Integer.toString(((Collection<?>) call(result, "getSitemaps")).size()) };
+            }
+            return new String[] { call(result, "getType").toString(),
+                    Integer.toString(((Collection<?>) call(result, "getSiteMapUrls")).size()) };
+        }
+    }
+
+    protected static class RobotsParserVersion extends VersionedParser {
+        private Object parser;
+        private Method parseContent;
+        private Object robotNames;
+
+        RobotsParserVersion(String jar, Set<String> robotNames) throws ReflectiveOperationException, MalformedURLException {
+            super(jar);
+            Class<?> parserClass = loader.loadClass("crawlercommons.robots.SimpleRobotRulesParser");
+            parser = parserClass.getConstructor().newInstance();
+            for (Method m : parserClass.getMethods()) {
+                if (m.getName().equals("parseContent") && m.getParameterCount() == 4) {
+                    Class<?> namesType = m.getParameterTypes()[3];
+                    if (namesType.isAssignableFrom(Collection.class) || namesType.isAssignableFrom(Set.class)) {
+                        parseContent = m;
+                        this.robotNames = robotNames;
+                        break;
+                    } else if (namesType == String.class) {
+                        // older versions: comma-separated robot names
+                        parseContent = m;
+                        this.robotNames = String.join(",", robotNames);
+                    }
+                }
+            }
+            if (parseContent == null) {
+                throw new NoSuchMethodException("SimpleRobotRulesParser.parseContent");
+            }
+        }
+
+        @Override
+        Object parse(Payload p) {
+            return invoke(parseContent, parser, p.url, p.content, p.contentType, robotNames);
+        }
+
+        @Override
+        String[] outcome(Object result) throws ReflectiveOperationException {
+            if (result instanceof Throwable) {
+                return new String[] { "failed (" + result.getClass().getSimpleName() + ")", "" };
+            }
+            String kind = "allow partial";
+            if ((Boolean) call(result, "isAllowAll")) {
+                kind = "allow all";
+            } else if ((Boolean) call(result, "isAllowNone")) {
+                kind = "allow none";
+            }
+            return new String[] { kind, Integer.toString(((Collection<?>) call(result, "getSitemaps")).size()) };
+        }
+    }
+
+    public void loadPayloads(String[] warcPaths) throws IOException {
+        ArchiveRecordProcessor proc = (record, offset) -> {
+            if (!(record instanceof WarcResponse) || (maxDocuments > 0 && payloads.size() >= maxDocuments)) {
+                return;
+            }
+            WarcResponse response = (WarcResponse) record;
+            String url = response.target();
+            try {
+                if (response.http().status() != 200) {
+                    return;
+                }
+                Payload p = new Payload();
+                p.url = url;
+                p.parsedUrl = new URL(url);
+                p.contentType = response.http().headers().first("Content-Type").orElse(null);
+                p.content = getContent(response);
+                payloads.add(p);
+                payloadBytes += p.content.length;
+            } catch (IOException | IllegalArgumentException e) {
+                LOG.error("Failed to process WARC record " + url, e);
+            }
+        };
+        for (String warcPath : warcPaths) {
+            if (PayloadCorpus.isCorpus(warcPath)) {
+                loadCorpus(warcPath);
+            } else {
+                readWarcFile(warcPath, proc);
+            }
+        }
+        LOG.info("Loaded {} documents ({} bytes)", payloads.size(), payloadBytes);
+    }
+
+    private void loadCorpus(String corpusPath) throws IOException {
+        PayloadCorpus corpus = PayloadCorpus.open(corpusPath);
+        for (int id = 0; id < corpus.size() && (maxDocuments <= 0 || payloads.size() < maxDocuments); id++) {
+            if (corpus.getStatus(id) != 200) {
+                continue;
+            }
+            Payload p = new Payload();
+            p.url = corpus.getUrl(id);
+            p.parsedUrl = new URL(p.url);
+            p.contentType = corpus.getContentType(id);
+            p.content = corpus.getContent(id);
+            payloads.add(p);
+            payloadBytes += p.content.length;
+        }
+    }
+
+    /** @return elapsed time in nanoseconds to parse all payloads */
+    protected long runOnce(VersionedParser parser) {
+        long start = System.nanoTime();
+        for (Payload p : payloads) {
+            sink = parser.parse(p);
+        }
+        return System.nanoTime() - start;
+    }
+
+    protected String f(double value) {
+        return String.format(Locale.ROOT, "%12.1f", value);
+    }
+
+    public void compareThroughput(VersionedParser a, VersionedParser b) {
+        VersionedParser[] versions = { a, b };
+        double[][] docsPerSecond = new double[2][rounds];
+        double[] relativeDiff = new double[rounds];
+        for (int round = -warmupRounds; round < rounds; round++) {
+            long[] elapsed = new long[2];
+            // alternate the order to cancel out drift (JIT, GC, thermal)
+            int first = (round & 1) == 0 ? 0 : 1;
+            elapsed[first] = runOnce(versions[first]);
+            elapsed[1 - first] = runOnce(versions[1 - first]);
+            if (round < 0) {
+                LOG.info("Warm-up round {}: A {} ms, B {} ms", (round + warmupRounds + 1), (elapsed[0] / 1000000),
+                        (elapsed[1] / 1000000));
+                continue;
+            }
+            for (int v = 0; v < 2; v++) {
+                docsPerSecond[v][round] = payloads.size() / (elapsed[v] / 1e9);
+            }
+            relativeDiff[round] = 100.0 * (docsPerSecond[1][round] / docsPerSecond[0][round] - 1.0);
+            LOG.info("Round {}: A {} ms, B {} ms", (round + 1), (elapsed[0] / 1000000), (elapsed[1] / 1000000));
+        }
+        double bytesPerDoc = payloads.isEmpty() ? 0.0 : ((double) payloadBytes / payloads.size());
+        for (int v = 0; v < 2; v++) {
+            double mean = Statistics.mean(docsPerSecond[v]);
+            double ci = Statistics.confidenceInterval95(docsPerSecond[v]);
+            LOG.info("{}\t+/-{}\tdocuments/s\t{}", f(mean), f(ci), (v == 0 ? "A" : "B"));
+            LOG.info("{}\t+/-{}\tbytes/s\t{}", f(mean * bytesPerDoc), f(ci * bytesPerDoc), (v == 0 ? "A" : "B"));
+        }
+        double diff = Statistics.mean(relativeDiff);
+        double diffCi = Statistics.confidenceInterval95(relativeDiff);
+        LOG.info("{}\t+/-{}\t% throughput difference B vs. A (95% confidence interval, {} rounds)", f(diff), f(diffCi),
+                rounds);
+        if (Math.abs(diff) > diffCi) {
+            LOG.info("Throughput difference is significant");
+        } else {
+            LOG.info("Throughput difference is not significant");
+        }
+    }
+
+    public void compareOutput(VersionedParser a, VersionedParser b, String kindLabel, String detailLabel)
+            throws ReflectiveOperationException {
+        int kindDiffs = 0, detailDiffs = 0;
+        for (Payload p : payloads) {
+            String[] outA = a.outcome(a.parse(p));
+            String[] outB = b.outcome(b.parse(p));
+            boolean differs = false;
+            if (!outA[0].equals(outB[0])) {
+                kindDiffs++;
+                differs = true;
+            } else if (!outA[1].equals(outB[1])) {
+                detailDiffs++;
+                differs = true;
+            }
+            if (differs && (kindDiffs + detailDiffs) <= maxDifferencesLogged) {
+                LOG.info("Output differs: A = {} {}, B = {} {}\t{}", outA[0], outA[1], outB[0], outB[1], p.url);
+            }
+        }
+        LOG.info("{}\tdocuments compared", String.format(Locale.ROOT, "%8d", payloads.size()));
+        LOG.info("{}\tdocuments differing in {}", String.format(Locale.ROOT, "%8d", kindDiffs), kindLabel);
+        LOG.info("{}\tdocuments differing in {}", String.format(Locale.ROOT, "%8d", detailDiffs), detailLabel);
+    }
+
+    public void run(String jarA, String jarB, String[] warcPaths) throws IOException, ReflectiveOperationException {
+        VersionedParser a, b;
+        String kindLabel, detailLabel;
+        if (mode.equals("robots")) {
+            String robotName = System.getProperty("robot.name");
+            Set<String> robotNames = Set.of();
+            if (robotName != null && !robotName.isBlank() && !robotName.strip().equals("*")) {
+                robotNames = Set.of(robotName.toLowerCase(Locale.ROOT));
+            }
+            a = new RobotsParserVersion(jarA, robotNames);
+            b = new RobotsParserVersion(jarB, robotNames);
+            kindLabel = "robots.txt classification (allow all/none/partial)";
+            detailLabel = "number of sitemaps";
+        } else {
+            a = new SitemapParserVersion(jarA);
+            b = new SitemapParserVersion(jarB);
+            kindLabel = "sitemap type";
+            detailLabel = "number of URLs";
+        }
+        LOG.info("Version A: {}", a);
+        LOG.info("Version B: {}", b);
+
+        loadPayloads(warcPaths);
+        compareOutput(a, b, kindLabel, detailLabel);
+        compareThroughput(a, b);
+    }
+
+    public static void main(String[] args) throws IOException, ReflectiveOperationException {
+        String jarA = System.getProperty("compare.a");
+        String jarB = System.getProperty("compare.b");
+        if (args.length < 1 || jarA == null || jarB == null) {
+            LOG.error("Usage:  VersionComparisonTest <WARC-file|corpus-file>...");
+            LOG.error("Java properties:");
+            LOG.error("  compare.a       (String/path) crawler-commons jar of version A (required)");
+            LOG.error("  compare.b       (String/path) crawler-commons jar of version B (required)");
+            LOG.error("  compare.mode    (String) sitemaps (default) or robots");
+            LOG.error("  compare.rounds  (int) number of measured rounds (default: 10)");
+            LOG.error("  compare.warmup  (int) number of warm-up rounds (default: 2)");
+            LOG.error("  compare.maxDocuments (int) max. number of documents loaded from WARC files");
+            LOG.error("  compare.logDifferences (int) max. number of documents with differing output to log (default: 20)");
+            LOG.error("  sitemap.strict, sitemap.partial, sitemap.strictNamespace, sitemap.extensions");
+            LOG.error("                  (boolean) sitemap parser configuration, see SiteMapPerformanceTest");
+            LOG.error("  robot.name      (String) robot name used to parse robots.txt files");
+            System.exit(1);
+        }
+
+        try (VersionComparisonTest test = new VersionComparisonTest()) {
+            test.run(jarA, jarB, args);
+        }
+    }
+
+}
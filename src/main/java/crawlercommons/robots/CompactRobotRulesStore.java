@@ -0,0 +1,177 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.robots;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import crawlercommons.robots.SimpleRobotRules.RobotRule;
+import crawlercommons.robots.SimpleRobotRules.RobotRulesMode;
+import crawlercommons.warcutils.Fingerprint;
+import crawlercommons.warcutils.LongIntHashMap;
+
+/**
+ * Host-keyed store of robots.txt rules, designed to hold the rules of
+ * millions of hosts:
+ * <ul>
+ * <li>hosts are identified by a 64-bit fingerprint of the host key (protocol,
+ * host and port), the host names are not retained</li>
+ * <li>identical rule sets (mode, crawl-delay and rules) are shared by all
+ * hosts, sitemaps are dropped</li>
+ * <li>rule prefixes are deduplicated across rule sets</li>
+ * </ul>
+ * The shared rule sets are {@link SimpleRobotRules} objects, so that
+ * {@link BaseRobotRules#isAllowed(String)} behaves exactly as for the rules
+ * returned by the parser. Lookups must not run concurrently with
+ * {@link #put(String, BaseRobotRules)}.
+ */
+public class CompactRobotRulesStore {
+
+    private final LongIntHashMap hosts;
+    /** rule set signature fingerprint &rarr; rule set ID */
+    private final LongIntHashMap ruleSetIds = new LongIntHashMap(16);
+    private final List<BaseRobotRules> ruleSets = new ArrayList<>();
+    private final Map<String,String> prefixes = new HashMap<>();
+
+    private long rules = 0;
+    private long ruleSetMemory = 0;
+    private long prefixMemory = 0;
+    /** estimated heap size if the parsed rules were held per host in a HashMap */
+    private long rawMemory = 0;
+
+    public CompactRobotRulesStore(int expectedHosts) {
+        hosts = new LongIntHashMap(expectedHosts);
+    }
+
+    public static long hostFingerprint(String hostKey) {
+        return Fingerprint.of(hostKey);
+    }
+
+    /**
+     * Add the rules of a host, replacing previously stored rules of the same
+     * host.
+     */
+    public synchronized void put(String hostKey, BaseRobotRules robotRules) {
+        long signature = signature(robotRules);
+        int id = ruleSetIds.get(signature);
+        if (id < 0) {
+            id = ruleSets.size();
+            BaseRobotRules copy = copy(robotRules);
+            ruleSets.add(copy);
+            ruleSetIds.put(signature, id);
+            ruleSetMemory += RobotRulesCache.estimateMemory(copy);
+        }
+        if (hosts.put(hostFingerprint(hostKey), id) < 0) {
+            // HashMap entry and host name
+            rawMemory += 48 + 40 + hostKey.length() + RobotRulesCache.estimateMemory(robotRules);
+        }
+    }
+
+    /** @return the rules of the host or null if the host is unknown */
+    public BaseRobotRules get(String hostKey) {
+        int id = hosts.get(hostFingerprint(hostKey));
+        return id < 0 ? null : ruleSets.get(id);
+    }
+
+    private static long signature(BaseRobotRules robotRules) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(robotRules.getClass().getName()).append('\n');
+        sb.append(robotRules.getCrawlDelay()).append('\n');
+        sb.append(robotRules.isDeferVisits()).append('\n');
+        if (robotRules instanceof SimpleRobotRules) {
+            SimpleRobotRules simpleRules = (SimpleRobotRules) robotRules;
+            sb.append(mode(simpleRules)).append('\n');
+            for (RobotRule rule : simpleRules.getRobotRules()) {
+                sb.append(rule.isAllow() ? 'A' : 'D').append(rule.getPrefix()).append('\n');
+            }
+        } else {
+            sb.append(robotRules.isAllowAll()).append(robotRules.isAllowNone());
+        }
+        return Fingerprint.of(sb);
+    }
+
+    /** rules mode derived by the public API */
+    private static RobotRulesMode mode(SimpleRobotRules robotRules) {
+        if (robotRules.isAllowAll()) {
+            return RobotRulesMode.ALLOW_ALL;
+        } else if (robotRules.isAllowNone()) {
+            return RobotRulesMode.ALLOW_NONE;
+        }
+        return RobotRulesMode.ALLOW_SOME;
+    }
+
+    /** Copy the rules without sitemaps, using deduplicated prefixes. */
+    private BaseRobotRules copy(BaseRobotRules robotRules) {
+        if (!(robotRules instanceof SimpleRobotRules)) {
+            return robotRules;
+        }
+        SimpleRobotRules simpleRules = (SimpleRobotRules) robotRules;
+        SimpleRobotRules copy = new SimpleRobotRules(mode(simpleRules));
+        copy.setCrawlDelay(simpleRules.getCrawlDelay());
+        copy.setDeferVisits(simpleRules.isDeferVisits());
+        for (RobotRule rule : simpleRules.getRobotRules()) {
+            copy.addRule(intern(rule.getPrefix()), rule.isAllow());
+            rules++;
+        }
+        return copy;
+    }
+
+    private String intern(String prefix) {
+        String interned = prefixes.putIfAbsent(prefix, prefix);
+        if (interned == null) {
+            // string held by the rule plus the HashMap entry
+            prefixMemory += 48;
+            return prefix;
+        }
+        // counted as part of the rule set, but shared
+        prefixMemory -= 40 + prefix.length();
+        return interned;
+    }
+
+    public synchronized int numHosts() {
+        return hosts.size();
+    }
+
+    public synchronized int numRuleSets() {
+        return ruleSets.size();
+    }
+
+    public synchronized int numPrefixes() {
+        return prefixes.size();
+    }
+
+    /** @return number of rules held in the shared rule sets */
+    public synchronized long numRules() {
+        return rules;
+    }
+
+    /** @return estimated heap size of the store in bytes */
+    public synchronized long estimateMemory() {
+        return hosts.estimateMemory() + ruleSetIds.estimateMemory() + 16 + 4L * ruleSets.size() + ruleSetMemory + prefixMemory;
+    }
+
+    /**
+     * @return estimated heap size in bytes if the parsed rules were held
+     *         per host in a <code>HashMap&lt;String,BaseRobotRules&gt;</code>
+     */
+    public synchronized long estimateRawMemory() {
+        return rawMemory;
+    }
+
+}
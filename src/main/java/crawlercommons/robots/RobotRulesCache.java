@@ -0,0 +1,124 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.robots;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import crawlercommons.robots.SimpleRobotRules.RobotRule;
+import crawlercommons.warcutils.Fingerprint;
+
+/**
+ * Bounded cache of parsed robots.txt rules, keyed by the payload digest (plus
+ * content type and robot names), so that byte-identical robots.txt files
+ * served by many hosts are parsed only once. The least-recently used entry is
+ * evicted if the cache is full. Note: relative sitemap URLs in cached rules
+ * are resolved against the URL of the robots.txt file parsed first.
+ */
+public class RobotRulesCache {
+
+    public static class Entry {
+        public final BaseRobotRules rules;
+        /** time in nanoseconds needed to parse the rules */
+        public final long parseNanos;
+        /** estimated heap size of the rules */
+        public final long memory;
+
+        Entry(BaseRobotRules rules, long parseNanos) {
+            this.rules = rules;
+            this.parseNanos = parseNanos;
+            this.memory = estimateMemory(rules);
+        }
+    }
+
+    private final int maxSize;
+    private long evictions = 0;
+    private final LinkedHashMap<String,Entry> entries;
+
+    public RobotRulesCache(int maxSize) {
+        this.maxSize = maxSize;
+        entries = new LinkedHashMap<>(Math.min(maxSize, 1 << 16), 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String,RobotRulesCache.Entry> eldest) {
+                if (size() > RobotRulesCache.this.maxSize) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** 64-bit fingerprint of the content, used if there is no payload digest */
+    public static String hash(byte[] content) {
+        return "fp64:" + Long.toHexString(Fingerprint.of(content)) + ":" + content.length;
+    }
+
+    public static String key(String digest, String contentType, String robotNames) {
+        return digest + '\t' + contentType + '\t' + robotNames;
+    }
+
+    /** @return cached entry or null */
+    public synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    public synchronized Entry put(String key, BaseRobotRules rules, long parseNanos) {
+        Entry entry = new Entry(rules, parseNanos);
+        entries.put(key, entry);
+        return entry;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Estimate the heap size of parsed rules (64-bit JVM, compressed
+     * references, compact strings).
+     */
+    public static long estimateMemory(BaseRobotRules rules) {
+        long size = 40; // rules object incl. crawl delay and mode
+        size += estimateList(rules.getSitemaps().size());
+        for (String sitemap : rules.getSitemaps()) {
+            size += estimateString(sitemap);
+        }
+        if (rules instanceof SimpleRobotRules) {
+            List<RobotRule> robotRules = ((SimpleRobotRules) rules).getRobotRules();
+            size += estimateList(robotRules.size());
+            for (RobotRule rule : robotRules) {
+                size += 24 + estimateString(rule.getPrefix());
+            }
+        }
+        return size;
+    }
+
+    private static long estimateList(int n) {
+        return 24 + 16 + 4L * n;
+    }
+
+    private static long estimateString(String s) {
+        return 24 + 16 + s.length();
+    }
+
+}
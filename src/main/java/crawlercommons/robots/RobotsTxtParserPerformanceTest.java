@@ -16,13 +16,29 @@
 
 package crawlercommons.robots;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.netpreserve.jwarc.WarcRecord;
 import org.netpreserve.jwarc.WarcResponse;
@@ -30,6 +46,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import crawlercommons.robots.SimpleRobotRules.RobotRule;
+import crawlercommons.sitemaps.AbstractSiteMap;
+import crawlercommons.sitemaps.SiteMap;
+import crawlercommons.sitemaps.SiteMapParser;
+import crawlercommons.sitemaps.SiteMapURL;
+import crawlercommons.sitemaps.UnknownFormatException;
+import crawlercommons.warcutils.AllocationMeter;
+import crawlercommons.warcutils.CounterMetrics;
+import crawlercommons.warcutils.LatencyHistogram;
+import crawlercommons.warcutils.PayloadCorpus;
+import crawlercommons.warcutils.RunResults;
 import crawlercommons.warcutils.WarcTestProcessor;
 
 public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
@@ -42,7 +68,31 @@ public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
 
     protected Collection<String> robotNames;
 
-    protected class ArchiveRecordRobotsTxtParser implements ArchiveRecordProcessor {
+    /**
+     * URLs to be checked against the robots.txt rules: path of a URL list
+     * file or "sitemaps" to take the URLs from the sitemaps in the WARC files
+     */
+    protected String urlSource = System.getProperty("robots.urls");
+    protected int maxUrlsPerHost = Integer.getInteger("robots.urls.maxPerHost", 10000);
+    /** number of times the URLs of a host are checked */
+    protected int matchRounds = Integer.getInteger("robots.urls.rounds", 1);
+    /** measure the latency of every n-th isAllowed call */
+    protected int latencySample = Math.max(1, Integer.getInteger("robots.urls.latencySample", 16));
+    /** URLs to be checked by host (protocol, host and port) */
+    protected Map<String,List<String>> urlsByHost = new HashMap<>();
+
+    /** cache of parsed rules keyed by payload digest, null if disabled */
+    protected RobotRulesCache rulesCache;
+    protected int robotsCacheSize = Integer.getInteger("robots.cache.size", 0);
+
+    /** keep the rules of all hosts in a compact store, null if disabled */
+    protected CompactRobotRulesStore rulesStore;
+    protected boolean keepRules = Boolean.valueOf(System.getProperty("robots.store"));
+    /** robots.txt URLs used to measure store lookups if no URL set is given */
+    protected List<String> storeSample = new ArrayList<>();
+    protected int storeSampleSize = Integer.getInteger("robots.store.sample", 100000);
+
+    protected class ArchiveRecordRobotsTxtParser implements ParallelArchiveRecordProcessor, CorpusRecordProcessor {
 
         private BaseRobotsParser parser;
         private Set<String> acceptedUrls = new HashSet<>();
@@ -56,58 +106,120 @@ public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
         }
 
         @Override
-        public void process(WarcRecord record, long offset) {
+        public Runnable prepare(WarcRecord record, long offset) {
             if (!(record instanceof WarcResponse)) {
-                return;
+                return null;
             }
             WarcResponse response = ((WarcResponse) record);
             String url = response.target();
             if (!acceptedUrls.isEmpty() && !acceptedUrls.contains(url)) {
-                return;
+                return null;
             }
             try {
                 Record warcRecord = new Record(response, offset);
                 byte[] content = getContent(response);
-                processRecord(parser, url, warcRecord, content);
+                return new PayloadTask(content.length, () -> processRecord(parser, url, warcRecord, content));
             } catch (IOException | IllegalArgumentException e) { // TODO: remove IllegalArgumentException (jwarc#38)
                 LOG.error("Failed to process WARC record " + url, e);
-                counter.failedFetch++;
+                counter.failedFetch.increment();
+            }
+            return null;
+        }
+
+        @Override
+        public Runnable prepare(CorpusRecord record) {
+            if (!acceptedUrls.isEmpty() && !acceptedUrls.contains(record.url)) {
+                return null;
             }
+            // the payload is copied from the mapped corpus file by the worker
+            return new PayloadTask(record.getPayloadLength(), () -> processRecord(parser, record.url, record, null));
         }
     }
 
     protected class Counter extends WarcTestProcessor.Counter {
-        int failedParse = 0;
-        int numRobotsRulesSets;
-        int allowedAll = 0;
-        int allowedNone = 0;
-        int allowedPartial = 0;
-        int hasSitemaps = 0;
-        int numSitemaps = 0;
-
-        public void countRules(BaseRobotRules rules) {
+        final LongAdder failedParse = new LongAdder();
+        final LongAdder numRobotsRulesSets = new LongAdder();
+        final LongAdder allowedAll = new LongAdder();
+        final LongAdder allowedNone = new LongAdder();
+        final LongAdder allowedPartial = new LongAdder();
+        final LongAdder hasSitemaps = new LongAdder();
+        final LongAdder numSitemaps = new LongAdder();
+        final LongAdder isAllowedCalls = new LongAdder();
+        final LongAdder isAllowedNanos = new LongAdder();
+        final LongAdder disallowed = new LongAdder();
+        final LongAdder hostsMatched = new LongAdder();
+        final LongAdder cacheLookups = new LongAdder();
+        final LongAdder cacheHits = new LongAdder();
+        /** heap size of rules shared from the cache instead of being held per host */
+        final LongAdder cacheSavedBytes = new LongAdder();
+        /** parse time in nanoseconds avoided by cache hits */
+        final LongAdder cacheSavedNanos = new LongAdder();
+        /** isAllowed calls and time, by rule-set size and pattern type */
+        final Map<String,CallTiming> matchTiming = new ConcurrentHashMap<>();
+        /** latency of sampled isAllowed calls by rule-set size and pattern type */
+        final Map<String,LatencyHistogram> matchLatency = new ConcurrentHashMap<>();
+        /** latency of store lookups (host &rarr; rules), resp. followed by isAllowed */
+        final LatencyHistogram storeGetLatency = new LatencyHistogram();
+        final LatencyHistogram storeIsAllowedLatency = new LatencyHistogram();
+
+        /**
+         * Count the rule set by outcome.
+         * 
+         * @return outcome: "allow all", "allow none" or "allow partial"
+         */
+        public String countRules(BaseRobotRules rules) {
             List<RobotRule> rulesList = null;
             if (rules instanceof SimpleRobotRules) {
                 rulesList = ((SimpleRobotRules) rules).getRobotRules();
             }
-            numRobotsRulesSets += 1;
+            numRobotsRulesSets.increment();
+            String outcome;
             if (rules.isAllowAll()) {
-                allowedAll += 1;
+                allowedAll.increment();
+                outcome = "allow all";
             } else if (rules.isAllowNone()) {
-                allowedNone += 1;
+                allowedNone.increment();
+                outcome = "allow none";
             } else if (rulesList.size() == 1 && rulesList.get(0).getPrefix().equals("/")) {
-                if (rulesList.get(0).isAllow())
-                    allowedAll += 1;
-                else
-                    allowedNone += 1;
+                if (rulesList.get(0).isAllow()) {
+                    allowedAll.increment();
+                    outcome = "allow all";
+                } else {
+                    allowedNone.increment();
+                    outcome = "allow none";
+                }
             } else {
-                allowedPartial += 1;
+                allowedPartial.increment();
+                outcome = "allow partial";
             }
             List<String> sitemaps = rules.getSitemaps();
             if (!sitemaps.isEmpty()) {
-                hasSitemaps += 1;
-                numSitemaps += sitemaps.size();
+                hasSitemaps.increment();
+                numSitemaps.add(sitemaps.size());
             }
+            return outcome;
+        }
+
+        @Override
+        public Map<String,Number> metrics() {
+            Map<String,Number> metrics = super.metrics();
+            metrics.put("failedToParse", failedParse.sum());
+            metrics.put("allowedAll", allowedAll.sum());
+            metrics.put("allowedNone", allowedNone.sum());
+            metrics.put("allowedPartial", allowedPartial.sum());
+            metrics.put("withSitemaps", hasSitemaps.sum());
+            metrics.put("isAllowedCalls", isAllowedCalls.sum());
+            metrics.put("cacheLookups", cacheLookups.sum());
+            metrics.put("cacheHits", cacheHits.sum());
+            return metrics;
+        }
+
+        @Override
+        public String[] rateMetrics() {
+            String[] rates = super.rateMetrics();
+            rates = Arrays.copyOf(rates, rates.length + 1);
+            rates[rates.length - 1] = "isAllowedCalls";
+            return rates;
         }
 
         @Override
@@ -120,6 +232,273 @@ public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
             log.info("{}\t{}\trobots.txt with sitemaps", f(hasSitemaps), fPercent(hasSitemaps, processed));
             log.info("{}\ttotal number of sitemap URLs found", f(numSitemaps));
         }
+
+        public void logCache(Logger log) {
+            if (rulesCache == null) {
+                return;
+            }
+            log.info("{}\trobots.txt rules cache lookups", f(cacheLookups));
+            log.info("{}\t{}\trobots.txt rules cache hits", f(cacheHits), fPercent(cacheHits, cacheLookups));
+            log.info("{}\trobots.txt rules cache entries (max. {})", f(rulesCache.size()), robotsCacheSize);
+            log.info("{}\trobots.txt rules cache evictions", f(rulesCache.getEvictions()));
+            log.info("{}\tbytes saved by sharing cached rules", f(cacheSavedBytes));
+            log.info("{}\tparse time avoided by cache hits (ms)", f(cacheSavedNanos.sum() / 1000000));
+        }
+
+        public void logStore(Logger log) {
+            if (rulesStore == null) {
+                return;
+            }
+            int hosts = rulesStore.numHosts();
+            long bytes = rulesStore.estimateMemory();
+            long rawBytes = rulesStore.estimateRawMemory();
+            log.info("{}\thosts in robots.txt rules store", f(hosts));
+            log.info("{}\tunique rule sets", f(rulesStore.numRuleSets()));
+            log.info("{}\trules in unique rule sets", f(rulesStore.numRules()));
+            log.info("{}\tunique rule prefixes", f(rulesStore.numPrefixes()));
+            log.info("{}\tbytes retained by store (estimated)", f(bytes));
+            log.info("{}\tbytes retained by raw SimpleRobotRules per host (estimated)", f(rawBytes));
+            log.info("{}\tbytes per host in store", fRatio(bytes, hosts));
+            log.info("{}\tbytes per host as raw SimpleRobotRules", fRatio(rawBytes, hosts));
+            log.info("{}\tMiB projected for 10M hosts in store", f((long) (10000000.0 * bytes / Math.max(hosts, 1)) >> 20));
+            log.info("{}\tMiB projected for 10M hosts as raw SimpleRobotRules",
+                    f((long) (10000000.0 * rawBytes / Math.max(hosts, 1)) >> 20));
+            if (storeGetLatency.getCount() > 0) {
+                log.info("Store lookup latency (nanoseconds):");
+                log.info("   calls\t     p50\t     p90\t     p99\t   p99.9\t     max");
+                logStoreLatency(log, storeGetLatency, "host -> rules");
+                logStoreLatency(log, storeIsAllowedLatency, "host -> rules -> isAllowed");
+            }
+        }
+
+        private void logStoreLatency(Logger log, LatencyHistogram h, String name) {
+            log.info("{}\t{}\t{}\t{}\t{}\t{}\t{}", f(h.getCount()), f(h.getValueAtPercentile(50.0)),
+                    f(h.getValueAtPercentile(90.0)), f(h.getValueAtPercentile(99.0)), f(h.getValueAtPercentile(99.9)),
+                    f(h.getMax()), name);
+        }
+
+        public void logMatching(Logger log) {
+            if (isAllowedCalls.sum() == 0) {
+                return;
+            }
+            log.info("{}\trobots.txt rule sets applied to URLs", f(hostsMatched));
+            log.info("{}\tisAllowed calls", f(isAllowedCalls));
+            log.info("{}\t{}\tURLs disallowed", f(disallowed), fPercent(disallowed, isAllowedCalls));
+            log.info("{}\tisAllowed calls per second (per thread)", f(callsPerSecond(isAllowedCalls.sum(), isAllowedNanos.sum())));
+            log.info("isAllowed calls per second and latency (nanoseconds, sampled calls):");
+            log.info("   calls\t calls/s\t samples\t     p50\t     p90\t     p99\t   p99.9\t     max");
+            for (Map.Entry<String,CallTiming> e : new TreeMap<>(matchTiming).entrySet()) {
+                CallTiming t = e.getValue();
+                LatencyHistogram h = matchLatency.getOrDefault(e.getKey(), new LatencyHistogram());
+                log.info("{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}\t{}", f(t.calls), f(callsPerSecond(t.calls.sum(), t.nanos.sum())),
+                        f(h.getCount()), f(h.getValueAtPercentile(50.0)), f(h.getValueAtPercentile(90.0)),
+                        f(h.getValueAtPercentile(99.0)), f(h.getValueAtPercentile(99.9)), f(h.getMax()), e.getKey());
+            }
+        }
+
+        private long callsPerSecond(long calls, long nanos) {
+            return nanos == 0 ? 0 : (long) (calls * 1000000000.0 / nanos);
+        }
+
+        @Override
+        public void writeHistograms(String path) throws IOException {
+            super.writeHistograms(path);
+            if (matchLatency.isEmpty()) {
+                return;
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND))) {
+                out.println("# isAllowed latency histograms, values in nanoseconds");
+                for (Map.Entry<String,LatencyHistogram> e : new TreeMap<>(matchLatency).entrySet()) {
+                    e.getValue().write(out, "isAllowed " + e.getKey());
+                }
+            }
+        }
+
+        @Override
+        public void report(Logger log) {
+            super.report(log);
+            logCache(log);
+            logMatching(log);
+            logStore(log);
+        }
+    }
+
+    /** @return key of the URL's host: protocol, host and port */
+    protected static String getHostKey(URL url) {
+        return url.getProtocol().toLowerCase(Locale.ROOT) + "://" + url.getAuthority().toLowerCase(Locale.ROOT);
+    }
+
+    protected void addUrl(String urlString) {
+        try {
+            URL url = new URL(urlString);
+            List<String> urls = urlsByHost.computeIfAbsent(getHostKey(url), k -> new ArrayList<>());
+            if (urls.size() < maxUrlsPerHost) {
+                urls.add(urlString);
+            }
+        } catch (MalformedURLException e) {
+            LOG.debug("Skipping invalid URL {}", urlString);
+        }
+    }
+
+    /**
+     * Load the URLs to be checked against the robots.txt rules, either from
+     * a URL list file or from the sitemaps in the WARC files.
+     */
+    protected void loadUrls(String[] warcPaths) throws IOException {
+        long start = System.currentTimeMillis();
+        if (urlSource.equals("sitemaps")) {
+            SiteMapParser sitemapParser = new SiteMapParser(false, true);
+            for (String warcPath : warcPaths) {
+                if (PayloadCorpus.isCorpus(warcPath)) {
+                    PayloadCorpus corpus = PayloadCorpus.open(warcPath);
+                    for (int id = 0; id < corpus.size(); id++) {
+                        String url = corpus.getUrl(id);
+                        if (!url.endsWith("/robots.txt") && corpus.getStatus(id) == 200) {
+                            loadUrlsFromSitemap(sitemapParser, url, corpus.getContent(id));
+                        }
+                    }
+                    continue;
+                }
+                readWarcFile(warcPath, (WarcRecord record, long offset) -> {
+                    String url = ((WarcResponse) record).target();
+                    if (url.endsWith("/robots.txt")) {
+                        return;
+                    }
+                    try {
+                        if (((WarcResponse) record).http().status() != 200) {
+                            return;
+                        }
+                        loadUrlsFromSitemap(sitemapParser, url, getContent((WarcResponse) record));
+                    } catch (IOException | IllegalArgumentException e) {
+                        LOG.debug("Failed to read WARC record {}: {}", url, e.getMessage());
+                    }
+                });
+            }
+        } else {
+            try (BufferedReader in = Files.newBufferedReader(Paths.get(urlSource), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    line = line.strip();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        addUrl(line);
+                    }
+                }
+            }
+        }
+        LOG.info("Loaded {} URLs of {} hosts from {} in {} ms", urlsByHost.values().stream().mapToInt(List::size).sum(),
+                urlsByHost.size(), urlSource, (System.currentTimeMillis() - start));
+    }
+
+    private void loadUrlsFromSitemap(SiteMapParser sitemapParser, String url, byte[] content) {
+        try {
+            AbstractSiteMap sitemap = sitemapParser.parseSiteMap(content, new URL(url));
+            if (!sitemap.isIndex()) {
+                for (SiteMapURL su : ((SiteMap) sitemap).getSiteMapUrls()) {
+                    addUrl(su.getUrl().toString());
+                }
+            }
+        } catch (UnknownFormatException | IOException | IllegalArgumentException e) {
+            LOG.debug("Not a sitemap {}: {}", url, e.getMessage());
+        }
+    }
+
+    /** @return label of the rule-set size bucket */
+    protected static String ruleSetSize(int rules) {
+        if (rules <= 1) {
+            return "rules <=1";
+        } else if (rules <= 10) {
+            return "rules 2-10";
+        } else if (rules <= 100) {
+            return "rules 11-100";
+        }
+        return "rules >100";
+    }
+
+    /** @return label of the pattern types used in the rule set: prefix only, wildcards, end anchors */
+    protected static String ruleSetPatterns(List<RobotRule> rules) {
+        boolean wildcard = false, endAnchor = false;
+        for (RobotRule rule : rules) {
+            String prefix = rule.getPrefix();
+            wildcard |= prefix.indexOf('*') >= 0;
+            endAnchor |= prefix.endsWith("$");
+        }
+        if (wildcard && endAnchor) {
+            return "patterns * and $";
+        } else if (wildcard) {
+            return "patterns *";
+        } else if (endAnchor) {
+            return "patterns $";
+        }
+        return "patterns prefix";
+    }
+
+    /** Number of calls and elapsed time of calls timed in batches */
+    protected static class CallTiming {
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+
+        void add(long n, long elapsed) {
+            calls.add(n);
+            nanos.add(elapsed);
+        }
+    }
+
+    /**
+     * Check the URLs of the robots.txt's host against the rules. The
+     * {@link BaseRobotRules#isAllowed(String)} calls are timed by batch (all
+     * URLs of the host), not one by one, so that the calls per second do not
+     * include the overhead of the clock reads. The latency is measured in an
+     * additional pass over a sample of every n-th URL, starting at a random
+     * offset (<code>robots.urls.latencySample</code>).
+     */
+    protected void applyRules(String robotsUrl, BaseRobotRules rules) {
+        List<String> urls;
+        try {
+            urls = urlsByHost.get(getHostKey(new URL(robotsUrl)));
+        } catch (MalformedURLException e) {
+            return;
+        }
+        if (urls == null || urls.isEmpty()) {
+            return;
+        }
+        List<RobotRule> rulesList = List.of();
+        if (rules instanceof SimpleRobotRules) {
+            rulesList = ((SimpleRobotRules) rules).getRobotRules();
+        }
+        String size = ruleSetSize(rulesList.size());
+        String patterns = ruleSetPatterns(rulesList);
+        LatencyHistogram bySize = counter.matchLatency.computeIfAbsent(size, k -> new LatencyHistogram());
+        LatencyHistogram byPatterns = counter.matchLatency.computeIfAbsent(patterns, k -> new LatencyHistogram());
+        LatencyHistogram all = counter.matchLatency.computeIfAbsent("all", k -> new LatencyHistogram());
+        long total = 0;
+        int disallowed = 0;
+        for (int round = 0; round < matchRounds; round++) {
+            long start = System.nanoTime();
+            for (String url : urls) {
+                if (!rules.isAllowed(url)) {
+                    disallowed++;
+                }
+            }
+            total += System.nanoTime() - start;
+            for (int i = ThreadLocalRandom.current().nextInt(latencySample); i < urls.size(); i += latencySample) {
+                String url = urls.get(i);
+                start = System.nanoTime();
+                rules.isAllowed(url);
+                long elapsed = System.nanoTime() - start;
+                all.record(elapsed);
+                bySize.record(elapsed);
+                byPatterns.record(elapsed);
+            }
+        }
+        long calls = (long) matchRounds * urls.size();
+        counter.matchTiming.computeIfAbsent(size, k -> new CallTiming()).add(calls, total);
+        counter.matchTiming.computeIfAbsent(patterns, k -> new CallTiming()).add(calls, total);
+        counter.matchTiming.computeIfAbsent("all", k -> new CallTiming()).add(calls, total);
+        counter.hostsMatched.increment();
+        counter.isAllowedCalls.add(calls);
+        counter.isAllowedNanos.add(total);
+        counter.disallowed.add(disallowed);
     }
 
     protected void processRecord(BaseRobotsParser parser, String urlString, Record record, byte[] content) {
@@ -132,19 +511,18 @@ public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
                 return;
             }
         }
-        if (record.isProcessed) {
+        if (!record.markProcessed()) {
             LOG.debug("WARC record already processed, skipping {}", urlString);
             return;
         }
-        record.isProcessed = true;
         if (record.status != 200) {
             // TODO: follow redirects if indexed
             // TODO: call parser.failedFetch(record.status)
             LOG.warn("Failed to fetch {} (HTTP status = {})", urlString, record.status);
-            counter.failedFetch++;
+            counter.failedFetch.increment();
             return;
         }
-        counter.processed++;
+        counter.processed.increment();
         if (content == null) {
             try {
                 content = record.getContent();
@@ -153,68 +531,234 @@ public class RobotsTxtParserPerformanceTest extends WarcTestProcessor {
                 return;
             }
         }
+        BaseRobotRules rules = null;
+        String cacheKey = null;
+        if (rulesCache != null) {
+            String digest = record.payloadDigest != null ? record.payloadDigest : RobotRulesCache.hash(content);
+            cacheKey = RobotRulesCache.key(digest, record.contentType, robotNames.toString());
+            counter.cacheLookups.increment();
+            RobotRulesCache.Entry cached = rulesCache.get(cacheKey);
+            if (cached != null) {
+                counter.cacheHits.increment();
+                counter.cacheSavedBytes.add(cached.memory);
+                counter.cacheSavedNanos.add(cached.parseNanos);
+                rules = cached.rules;
+            }
+        }
+        if (rules == null) {
+            long start = System.nanoTime();
+            rules = parseRules(parser, urlString, record, content);
+            if (rules == null) {
+                return;
+            }
+            if (cacheKey != null) {
+                rulesCache.put(cacheKey, rules, System.nanoTime() - start);
+            }
+        } else {
+            counter.countRules(rules);
+        }
+        if (urlSource != null) {
+            applyRules(urlString, rules);
+        }
+        if (rulesStore != null) {
+            storeRules(urlString, rules);
+        }
+        if ((counter.processed.sum() % 50) == 0) {
+            LOG.info("Processed {} robots.txt files", counter.processed);
+        }
+        counter.success.increment();
+    }
+
+    protected void storeRules(String robotsUrl, BaseRobotRules rules) {
+        try {
+            rulesStore.put(getHostKey(new URL(robotsUrl)), rules);
+        } catch (MalformedURLException e) {
+            return;
+        }
+        if (urlSource == null) {
+            synchronized (storeSample) {
+                if (storeSample.size() < storeSampleSize) {
+                    storeSample.add(robotsUrl);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measure the latency of store lookups (host &rarr; rules) followed by
+     * {@link BaseRobotRules#isAllowed(String)}, using the URL set or, if not
+     * given, a sample of the robots.txt URLs.
+     */
+    protected void measureStoreLookups() {
+        List<String> urls = new ArrayList<>();
+        if (urlSource != null) {
+            urlsByHost.values().forEach(urls::addAll);
+        } else {
+            urls.addAll(storeSample);
+        }
+        List<String> hostKeys = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            try {
+                hostKeys.add(getHostKey(new URL(url)));
+            } catch (MalformedURLException e) {
+                hostKeys.add("");
+            }
+        }
+        for (int round = 0; round < matchRounds; round++) {
+            for (int i = 0; i < urls.size(); i++) {
+                long start = System.nanoTime();
+                BaseRobotRules rules = rulesStore.get(hostKeys.get(i));
+                long found = System.nanoTime();
+                if (rules != null) {
+                    rules.isAllowed(urls.get(i));
+                }
+                long end = System.nanoTime();
+                counter.storeGetLatency.record(found - start);
+                counter.storeIsAllowedLatency.record(end - start);
+            }
+        }
+    }
+
+    /**
+     * Parse the robots.txt and record time, allocations and outcome.
+     *
+     * @return the parsed rules or null if the parse was abandoned because it
+     *         exceeded the time budget
+     */
+    protected BaseRobotRules parseRules(BaseRobotsParser parser, String urlString, Record record, byte[] content) {
         BaseRobotRules rules;
-        long start = System.currentTimeMillis();
+        long allocStart = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed = 0;
         try {
             LOG.debug("Parsing robots.txt {}", urlString);
-            rules = parser.parseContent(urlString, content, record.contentType, robotNames);
-            LOG.debug(rules.toString());
-            counter.countRules(rules);
+            if (watchdog == null) {
+                rules = parser.parseContent(urlString, content, record.contentType, robotNames);
+            } else {
+                rules = watchdog.call(() -> parser.parseContent(urlString, content, record.contentType, robotNames));
+            }
+        } catch (TimeoutException e) {
+            LOG.warn("Abandoned parsing robots.txt {} after {} ms (warc.parse.timeout)", urlString, parseTimeout);
+            counter.recordLatency("robots abandoned", System.nanoTime() - start);
+            quarantine(urlString, record, content);
+            return null;
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // not thrown by parseContent
+            throw new RuntimeException(e);
         } finally {
-            long elapsed = (System.currentTimeMillis() - start);
-            if (elapsed > 150) {
-                LOG.warn("Processing robots.txt {} took {}ms", urlString, elapsed);
+            elapsed = (System.nanoTime() - start);
+            counter.recordAllocation(urlString, content.length,
+                    watchdog != null ? watchdog.getAllocated() : AllocationMeter.allocatedSince(allocStart));
+            if (elapsed > 150000000L) {
+                LOG.warn("Processing robots.txt {} took {}ms", urlString, (elapsed / 1000000));
             }
-            counter.elapsed += elapsed;
-        }
-        // TODO: apply rules to set of URLs
-        if ((counter.processed % 50) == 0) {
-            LOG.info("Processed {} robots.txt files", counter.processed);
+            counter.elapsed.add(elapsed);
+            counter.recordLatency("all", elapsed);
+            counter.recordLatency(counter.sizeBucket(content.length), elapsed);
         }
-        counter.success++;
+        LOG.debug(rules.toString());
+        String outcome = counter.countRules(rules);
+        counter.recordLatency("robots " + outcome, elapsed);
+        return rules;
     }
 
     public void run(BaseRobotsParser parser, String[] warcPaths) throws MalformedURLException, IOException {
+        resetPhases();
+        CounterMetrics metrics = publishMetrics(counter);
         if (urlToBeParsed != null) {
             LOG.info("Parsing robots.txt for URL <{}>", this.urlToBeParsed);
         }
 
+        if (urlSource != null) {
+            loadUrls(warcPaths);
+        }
+        if (robotsCacheSize > 0) {
+            rulesCache = new RobotRulesCache(robotsCacheSize);
+        }
+        if (keepRules) {
+            rulesStore = new CompactRobotRulesStore(Integer.getInteger("robots.store.expectedHosts", 16));
+        }
+
         long start = System.currentTimeMillis();
 
         ArchiveRecordRobotsTxtParser proc = new ArchiveRecordRobotsTxtParser(parser);
         if (urlToBeParsed != null) {
             proc.filterAllowUrl(urlToBeParsed);
         }
-        for (String warcPath : warcPaths) {
-            readWarcFile(warcPath, proc);
-        }
+        readInputs(warcPaths, proc);
 
-        LOG.info("Finished processing, elapsed: {} ms", (System.currentTimeMillis() - start));
-        counter.log(LOG);
+        counter.wallMillis = System.currentTimeMillis() - start;
+        LOG.info("Finished processing, elapsed: {} ms", counter.wallMillis);
+        if (rulesStore != null) {
+            measureStoreLookups();
+        }
+        counter.report(LOG);
+        closeWatchdog();
+        if (metrics != null) {
+            metrics.close();
+        }
     }
 
     public static void main(String[] args) throws MalformedURLException, IOException {
 
         if (args.length < 1) {
-            LOG.error("Usage:  Robots.txt parser test <WARC-file>...");
+            LOG.error("Usage:  Robots.txt parser test <WARC-file|corpus-file>...");
             LOG.error("Java properties:");
             LOG.error("  robot.name  (String) robot name, \"product token\" as in RFC 9309");
             LOG.error("  warc.parse.url  (String/URL) parse robots.txt of URL only");
+            LOG.error("  warc.threads    (int) number of threads parsing robots.txt files (default: 1)");
+            LOG.error("  warc.shards     (int) number of WARC files read and processed concurrently (default: 1)");
+            LOG.error("  warc.splits     (int) split compressed WARC files into n ranges read concurrently (default: 1)");
+            LOG.error("  warc.inflight.maxBytes (long) max. bytes of payloads in flight to worker threads (default: unlimited)");
+            LOG.error("  warc.inflight.oversize (long) payloads larger than this are parsed one by one (default: maxBytes / threads)");
+            LOG.error("  warc.parse.timeout (long) time budget per robots.txt in ms, slower parses are abandoned (default: unlimited)");
+            LOG.error("  warc.parse.quarantine (String/path) copy robots.txt files exceeding the time budget to this WARC file");
+            LOG.error("  report.histograms (String/path) write latency histograms to file");
+            LOG.error("  report.jmx      (boolean) publish counters and rates as MBean crawlercommons:type=RobotsTxtParserPerformanceTest");
+            LOG.error("  report.jmx.window (int) rolling window in seconds for rates published via JMX (default: 10)");
+            LOG.error("  report.repetitions (int) number of measured runs (default: 1)");
+            LOG.error("  report.warmup   (int) number of warm-up runs not recorded (default: 0)");
+            LOG.error("  report.results  (String/path) write configuration and results to file (JSON, or CSV if suffix is .csv)");
+            LOG.error("  report.baseline (String/path) compare with results of a previous run, exit with 2 on regression");
+            LOG.error("  report.baseline.threshold (double) min. change in percent flagged as regression (default: 5.0)");
+            LOG.error("  robots.cache.size (int) cache parsed rules by payload digest, max. number of cached rule sets");
+            LOG.error("  robots.store    (boolean) keep the rules of all hosts in a compact store, report its footprint");
+            LOG.error("  robots.store.expectedHosts (int) initial capacity of the store");
+            LOG.error("  robots.store.sample (int) number of hosts used to measure store lookups (default: 100000)");
+            LOG.error("  robots.urls     (String/path) check URLs in file against the robots.txt rules of their host,");
+            LOG.error("                            \"sitemaps\": check the URLs found in the sitemaps of the WARC files");
+            LOG.error("  robots.urls.maxPerHost (int) max. number of URLs checked per host (default: 10000)");
+            LOG.error("  robots.urls.rounds (int) number of times the URLs are checked (default: 1)");
+            LOG.error("  robots.urls.latencySample (int) measure the latency of every n-th URL (default: 16)");
             System.exit(1);
         }
 
-        RobotsTxtParserPerformanceTest test = new RobotsTxtParserPerformanceTest();
-
         String robotName = System.getProperty("robot.name");
-        test.robotNames = Set.of(robotName.toLowerCase(Locale.ROOT));
+        Set<String> robotNames = Set.of(robotName.toLowerCase(Locale.ROOT));
         if (robotName == null || robotName.isBlank() || robotName.strip().equals("*")) {
             // test for default / wildcard user-agent
-            test.robotNames = Set.of();
+            robotNames = Set.of();
         }
         BaseRobotsParser parser = new SimpleRobotRulesParser();
-        LOG.info("Parsing robots.txt files for user-agent \"{}\" ({}) using {} (crawler-commons v{})", robotName, test.robotNames, parser.getClass(), crawlercommons.CrawlerCommons.getVersion());
+        LOG.info("Parsing robots.txt files for user-agent \"{}\" ({}) using {} (crawler-commons v{})", robotName, robotNames, parser.getClass(), crawlercommons.CrawlerCommons.getVersion());
 
-        test.run(parser, args);
+        RunResults results = new RunResults(RobotsTxtParserPerformanceTest.class.getSimpleName(),
+                crawlercommons.CrawlerCommons.getVersion());
+        int warmup = RunResults.getWarmupRuns();
+        for (int i = 0; i < warmup + RunResults.getRepetitions(); i++) {
+            try (RobotsTxtParserPerformanceTest test = new RobotsTxtParserPerformanceTest()) {
+                test.robotNames = robotNames;
+                test.run(parser, args);
+                if (i >= warmup) {
+                    results.add(test.counter.metrics());
+                }
+            }
+        }
+        if (results.report(LOG)) {
+            System.exit(2);
+        }
     }
 
 }
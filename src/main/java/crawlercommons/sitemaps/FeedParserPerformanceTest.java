@@ -2,15 +2,17 @@ package crawlercommons.sitemaps;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,6 +21,9 @@ import com.rometools.rome.feed.synd.SyndEntry;
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.FeedException;
 import com.rometools.rome.io.SyndFeedInput;
+import com.rometools.rome.io.XmlReader;
+
+import crawlercommons.warcutils.RunResults;
 
 public class FeedParserPerformanceTest extends SiteMapPerformanceTest {
 
@@ -26,7 +31,7 @@ public class FeedParserPerformanceTest extends SiteMapPerformanceTest {
 
     public static class FeedParser extends SiteMapParser {
 
-        private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ", Locale.ROOT).withZone(ZoneId.of(ZoneOffset.UTC.toString()));;
+        private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX", Locale.ROOT).withZone(ZoneId.of(ZoneOffset.UTC.toString()));;
 
         public AbstractSiteMap parseSiteMap(byte[] content, URL url) throws UnknownFormatException {
 
@@ -34,7 +39,8 @@ public class FeedParserPerformanceTest extends SiteMapPerformanceTest {
             SyndFeed feed = null;
             try (ByteArrayInputStream is = new ByteArrayInputStream(content)) {
                 SyndFeedInput input = new SyndFeedInput();
-                feed = input.build(new InputStreamReader(is, StandardCharsets.UTF_8));
+                // detect the encoding from BOM or XML declaration
+                feed = input.build(new XmlReader(is));
             } catch (IllegalArgumentException | FeedException | IOException e) {
                 String msg = "Failed to parse " + url + ": " + e.getMessage();
                 FeedParserPerformanceTest.LOG.warn(msg);
@@ -85,25 +91,204 @@ public class FeedParserPerformanceTest extends SiteMapPerformanceTest {
 
     }
 
+    /**
+     * Runs both the ROME-based and the streaming StAX-based feed parser on
+     * every document, records the latency of each parser and checks whether
+     * both extract the same URLs and last-modified dates (compared with a
+     * precision of seconds). The alternating order of the parser calls evens
+     * out caching effects. The result of the StAX-based parser is returned.
+     */
+    protected class ComparingFeedParser extends SiteMapParser {
+
+        private FeedParser romeParser = new FeedParser();
+        private StaxFeedParser staxParser = new StaxFeedParser();
+        private AtomicInteger calls = new AtomicInteger();
+        private int maxLoggedDifferences = Integer.getInteger("feed.compare.logDifferences", 10);
+
+        private AtomicInteger loggedDifferences = new AtomicInteger();
+        final ComparisonCounter stats = new ComparisonCounter();
+
+        @Override
+        public AbstractSiteMap parseSiteMap(byte[] content, URL url) throws UnknownFormatException {
+            AbstractSiteMap rome, stax;
+            if ((calls.getAndIncrement() % 2) == 0) {
+                rome = parse(romeParser, content, url, "feed parser rome", stats.nanosRome, stats.failedRome);
+                stax = parse(staxParser, content, url, "feed parser stax", stats.nanosStax, stats.failedStax);
+            } else {
+                stax = parse(staxParser, content, url, "feed parser stax", stats.nanosStax, stats.failedStax);
+                rome = parse(romeParser, content, url, "feed parser rome", stats.nanosRome, stats.failedRome);
+            }
+            compare(url, rome, stax);
+            if (stax == null) {
+                throw new UnknownFormatException("Failed to parse " + url);
+            }
+            return stax;
+        }
+
+        private AbstractSiteMap parse(SiteMapParser parser, byte[] content, URL url, String name, LongAdder nanos,
+                LongAdder failed) {
+            long start = System.nanoTime();
+            try {
+                return parser.parseSiteMap(content, url);
+            } catch (UnknownFormatException | IOException e) {
+                failed.increment();
+                return null;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                nanos.add(elapsed);
+                counter.recordLatency(name, elapsed);
+            }
+        }
+
+        private Map<String,Long> getUrls(AbstractSiteMap sitemap) {
+            Map<String,Long> urls = new HashMap<>();
+            if (sitemap != null) {
+                for (SiteMapURL su : ((SiteMap) sitemap).getSiteMapUrls()) {
+                    Date lastMod = su.getLastModified();
+                    urls.put(su.getUrl().toString(), lastMod == null ? Long.MIN_VALUE : lastMod.getTime() / 1000);
+                }
+            }
+            return urls;
+        }
+
+        private void compare(URL url, AbstractSiteMap rome, AbstractSiteMap stax) {
+            stats.compared.increment();
+            Map<String,Long> romeUrls = getUrls(rome);
+            Map<String,Long> staxUrls = getUrls(stax);
+            boolean isEqual = (rome == null) == (stax == null);
+            for (Map.Entry<String,Long> e : romeUrls.entrySet()) {
+                Long lastMod = staxUrls.get(e.getKey());
+                if (lastMod == null) {
+                    stats.onlyRome.increment();
+                    logDifference(url, "URL only extracted by ROME: " + e.getKey());
+                    isEqual = false;
+                } else if (!lastMod.equals(e.getValue())) {
+                    stats.lastModDiffers.increment();
+                    logDifference(url, "last-modified differs for " + e.getKey());
+                    isEqual = false;
+                }
+            }
+            for (String u : staxUrls.keySet()) {
+                if (!romeUrls.containsKey(u)) {
+                    stats.onlyStax.increment();
+                    logDifference(url, "URL only extracted by StAX: " + u);
+                    isEqual = false;
+                }
+            }
+            if (isEqual) {
+                stats.equal.increment();
+            }
+        }
+
+        private void logDifference(URL url, String msg) {
+            if (loggedDifferences.getAndIncrement() < maxLoggedDifferences) {
+                FeedParserPerformanceTest.LOG.warn("Output differs for feed {}: {}", url, msg);
+            }
+        }
+
+    }
+
+    protected static class ComparisonCounter {
+        final LongAdder compared = new LongAdder();
+        final LongAdder equal = new LongAdder();
+        final LongAdder failedRome = new LongAdder();
+        final LongAdder failedStax = new LongAdder();
+        final LongAdder onlyRome = new LongAdder();
+        final LongAdder onlyStax = new LongAdder();
+        final LongAdder lastModDiffers = new LongAdder();
+        final LongAdder nanosRome = new LongAdder();
+        final LongAdder nanosStax = new LongAdder();
+
+        public void logComparison(Logger log) {
+            log.info("Comparison ROME vs. StAX feed parser:");
+            log.info("{}\tfeeds compared", f(compared));
+            log.info("{}\t{}\tfeeds with equivalent output", f(equal),
+                    String.format(Locale.ROOT, "%6.2f%%", 100.0 * equal.sum() / compared.sum()));
+            log.info("{}\tfeeds failed to parse (ROME)", f(failedRome));
+            log.info("{}\tfeeds failed to parse (StAX)", f(failedStax));
+            log.info("{}\tURLs only extracted by ROME", f(onlyRome));
+            log.info("{}\tURLs only extracted by StAX", f(onlyStax));
+            log.info("{}\tURLs with different last-modified date", f(lastModDiffers));
+            log.info("{}\ttime elapsed (ms, ROME)", f(nanosRome.sum() / 1000000));
+            log.info("{}\ttime elapsed (ms, StAX)", f(nanosStax.sum() / 1000000));
+            log.info("{}\tspeedup StAX over ROME", String.format(Locale.ROOT, "%10.1f",
+                    nanosStax.sum() == 0 ? 0.0 : ((double) nanosRome.sum() / nanosStax.sum())));
+        }
+
+        private static String f(LongAdder n) {
+            return f(n.sum());
+        }
+
+        private static String f(long n) {
+            return String.format(Locale.ROOT, "%8d", n);
+        }
+    }
+
+    @Override
+    public void run(SiteMapParser parser, String[] warcPaths) throws MalformedURLException, IOException {
+        super.run(parser, warcPaths);
+        if (parser instanceof ComparingFeedParser) {
+            ((ComparingFeedParser) parser).stats.logComparison(LOG);
+        }
+    }
+
+    /** create the feed parser selected by <code>feed.parser</code> */
+    protected SiteMapParser createFeedParser() {
+        String feedParser = System.getProperty("feed.parser", "rome");
+        SiteMapParser parser;
+        if (feedParser.equals("stax")) {
+            parser = new StaxFeedParser();
+        } else if (feedParser.equals("compare")) {
+            parser = new ComparingFeedParser();
+        } else {
+            parser = new FeedParser();
+        }
+        boolean sitemapStrictNamespace = Boolean.valueOf(System.getProperty("sitemap.strictNamespace"));
+        parser.setStrictNamespace(sitemapStrictNamespace);
+        return parser;
+    }
+
     public static void main(String[] args) throws MalformedURLException, IOException {
 
         if (args.length < 1) {
-            LOG.error("Usage:  FeedParserPerformanceTest <WARC-file>...");
+            LOG.error("Usage:  FeedParserPerformanceTest <WARC-file|corpus-file>...");
             LOG.error("Java properties:");
             LOG.error("  warc.index      (boolean) index WARC files and parse sitemap indexes recursively");
+            LOG.error("  warc.index.sidecar (boolean) persist the index in sidecar files (<warc-file>.idx)");
             LOG.error("  warc.parse.url  (String/URL) parse sitemap indexed by URL");
             LOG.error("                            (recursively if it's a sitemap index and warc.index is true)");
+            LOG.error("  warc.threads    (int) number of threads parsing feeds (default: 1)");
+            LOG.error("  feed.parser     (String) feed parser: rome (default), stax (streaming),");
+            LOG.error("                            compare (run both, check output equivalence)");
+            LOG.error("  feed.compare.logDifferences (int) max. number of differences logged (default: 10)");
+            LOG.error("  report.histograms (String/path) write latency histograms to file");
+            LOG.error("  report.repetitions (int) number of measured runs (default: 1)");
+            LOG.error("  report.warmup   (int) number of warm-up runs not recorded (default: 0)");
+            LOG.error("  report.results  (String/path) write configuration and results to file (JSON, or CSV if suffix is .csv)");
+            LOG.error("  report.baseline (String/path) compare with results of a previous run, exit with 2 on regression");
+            LOG.error("  report.baseline.threshold (double) min. change in percent flagged as regression (default: 5.0)");
             System.exit(1);
         }
 
-        SiteMapParser parser = new FeedParser();
-        boolean sitemapStrictNamespace = Boolean.valueOf(System.getProperty("sitemap.strictNamespace"));
-        parser.setStrictNamespace(sitemapStrictNamespace);
-        LOG.info("Using {}", parser.getClass());
-
-        SiteMapPerformanceTest test = new FeedParserPerformanceTest();
-
-        test.run(parser, args);
+        RunResults results = new RunResults(FeedParserPerformanceTest.class.getSimpleName(),
+                crawlercommons.CrawlerCommons.getVersion());
+        int warmup = RunResults.getWarmupRuns();
+        for (int i = 0; i < warmup + RunResults.getRepetitions(); i++) {
+            try (FeedParserPerformanceTest test = new FeedParserPerformanceTest()) {
+                // the comparing parser holds the statistics of one run
+                SiteMapParser parser = test.createFeedParser();
+                if (i == 0) {
+                    LOG.info("Using {}", parser.getClass());
+                }
+                test.run(parser, args);
+                if (i >= warmup) {
+                    results.add(test.counter.metrics());
+                }
+            }
+        }
+        if (results.report(LOG)) {
+            System.exit(2);
+        }
     }
 
 }
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.sitemaps;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.netpreserve.jwarc.WarcReader;
+import org.netpreserve.jwarc.WarcRecord;
+import org.netpreserve.jwarc.WarcResponse;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import crawlercommons.warcutils.PayloadCorpus;
+import crawlercommons.warcutils.WarcTestProcessor;
+
+/**
+ * JMH benchmark of the {@link SiteMapParser} over the matrix of parser
+ * configurations. The sitemaps are loaded once per trial from the WARC
+ * file(s) or payload corpora given by the parameter <code>warc</code>. One operation is the
+ * parsing of one document, the auxiliary counters report the parsed bytes
+ * and extracted URLs per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SiteMapParserBenchmark {
+
+    private static Logger LOG = LoggerFactory.getLogger(SiteMapParserBenchmark.class);
+
+    /** WARC file(s) or payload corpora, multiple files separated by the path separator */
+    @Param("")
+    public String warc;
+
+    /** max. number of documents loaded from the WARC file(s), 0 = unlimited */
+    @Param("0")
+    public int maxDocuments;
+
+    @Param({ "false", "true" })
+    public boolean strict;
+
+    @Param({ "false", "true" })
+    public boolean partial;
+
+    /** namespace checking: none, strict or lazy (strict but allowing legacy namespaces) */
+    @Param({ "none", "strict", "lazy" })
+    public String namespace;
+
+    @Param({ "false", "true" })
+    public boolean extensions;
+
+    private SiteMapParser parser;
+    private List<byte[]> contents = new ArrayList<>();
+    private List<URL> urls = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public long bytes;
+        public long urls;
+        int next = 0;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+            urls = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        parser = SiteMapPerformanceTest.createParser(strict, partial, namespace.equals("strict"), namespace.equals("lazy"),
+                extensions);
+        if (warc.isEmpty()) {
+            throw new IllegalArgumentException("No WARC file given (parameter warc)");
+        }
+        for (String warcPath : warc.split(File.pathSeparator)) {
+            loadWarcFile(warcPath);
+        }
+        if (contents.isEmpty()) {
+            throw new IllegalArgumentException("No documents found in " + warc);
+        }
+        LOG.info("Loaded {} documents from {}", contents.size(), warc);
+    }
+
+    private void loadWarcFile(String warcPath) throws IOException {
+        if (PayloadCorpus.isCorpus(warcPath)) {
+            loadCorpus(warcPath);
+            return;
+        }
+        try (WarcReader reader = new WarcReader(Paths.get(warcPath))) {
+            for (WarcRecord record : reader) {
+                if (maxDocuments > 0 && contents.size() >= maxDocuments) {
+                    return;
+                }
+                if (!(record instanceof WarcResponse)) {
+                    continue;
+                }
+                WarcResponse response = (WarcResponse) record;
+                try {
+                    if (response.http().status() != 200) {
+                        continue;
+                    }
+                    URL url = new URL(response.target());
+                    contents.add(WarcTestProcessor.getContent(response));
+                    urls.add(url);
+                } catch (MalformedURLException e) {
+                    LOG.warn("Invalid URL {}: {}", response.target(), e);
+                } catch (IOException | IllegalArgumentException e) {
+                    LOG.warn("Failed to read WARC record {}: {}", response.target(), e);
+                }
+            }
+        }
+    }
+
+    private void loadCorpus(String corpusPath) throws IOException {
+        PayloadCorpus corpus = PayloadCorpus.open(corpusPath);
+        for (int id = 0; id < corpus.size(); id++) {
+            if (maxDocuments > 0 && contents.size() >= maxDocuments) {
+                return;
+            }
+            if (corpus.getStatus(id) != 200) {
+                continue;
+            }
+            try {
+                URL url = new URL(corpus.getUrl(id));
+                contents.add(corpus.getContent(id));
+                urls.add(url);
+            } catch (MalformedURLException e) {
+                LOG.warn("Invalid URL {}: {}", corpus.getUrl(id), e);
+            }
+        }
+    }
+
+    @Benchmark
+    public void parse(Throughput counter, Blackhole bh) {
+        int i = counter.next++;
+        if (counter.next == contents.size()) {
+            counter.next = 0;
+        }
+        byte[] content = contents.get(i);
+        counter.bytes += content.length;
+        try {
+            AbstractSiteMap sitemap = parser.parseSiteMap(content, urls.get(i));
+            if (!sitemap.isIndex()) {
+                counter.urls += ((SiteMap) sitemap).getSiteMapUrls().size();
+            }
+            bh.consume(sitemap);
+        } catch (UnknownFormatException | IOException e) {
+            bh.consume(e);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        if (args.length < 1) {
+            LOG.error("Usage:  SiteMapParserBenchmark <WARC-file|corpus-file>...");
+            LOG.error("Runs the benchmark for all parser configurations with the GC profiler enabled.");
+            LOG.error("Use org.openjdk.jmh.Main to pass JMH options, e.g.");
+            LOG.error("  org.openjdk.jmh.Main SiteMapParserBenchmark -prof gc -p warc=<WARC-file> -p strict=false");
+            System.exit(1);
+        }
+        Options opts = new OptionsBuilder() //
+                .include(SiteMapParserBenchmark.class.getName()) //
+                .param("warc", String.join(File.pathSeparator, args)) //
+                .addProfiler(GCProfiler.class) //
+                .build();
+        new Runner(opts).run();
+    }
+
+}
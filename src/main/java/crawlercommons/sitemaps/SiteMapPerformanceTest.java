@@ -17,15 +17,24 @@
 package crawlercommons.sitemaps;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import org.netpreserve.jwarc.WarcRecord;
 import org.netpreserve.jwarc.WarcResponse;
@@ -34,6 +43,18 @@ import org.slf4j.LoggerFactory;
 
 import crawlercommons.sitemaps.AbstractSiteMap.SitemapType;
 import crawlercommons.sitemaps.extension.Extension;
+import crawlercommons.warcutils.AllocationMeter;
+import crawlercommons.warcutils.ConcurrentLongHashSet;
+import crawlercommons.warcutils.CounterMetrics;
+import crawlercommons.warcutils.CountingInputStream;
+import crawlercommons.warcutils.Fingerprint;
+import crawlercommons.warcutils.HeapMeter;
+import crawlercommons.warcutils.HyperLogLog;
+import crawlercommons.warcutils.LatencyHistogram;
+import crawlercommons.warcutils.PayloadCorpus;
+import crawlercommons.warcutils.PhaseTimes.Phase;
+import crawlercommons.warcutils.RunResults;
+import crawlercommons.warcutils.TopN;
 import crawlercommons.warcutils.WarcTestProcessor;
 
 public class SiteMapPerformanceTest extends WarcTestProcessor {
@@ -45,8 +66,41 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
     protected boolean indexed = Boolean.valueOf(System.getProperty("warc.index"));
     protected boolean enableSitemapExtensions = Boolean.valueOf(System.getProperty("sitemap.extensions"));
     protected String urlToBeParsed = System.getProperty("warc.parse.url");
+    /** max. depth up to which (nested) sitemap indexes are expanded */
+    protected int maxIndexDepth = Integer.getInteger("sitemap.index.maxDepth", 1);
+    protected ForkJoinPool forkJoinPool;
 
-    protected class ArchiveRecordSitemapParser implements ArchiveRecordProcessor {
+    /**
+     * Resolve sitemap indexes in two passes without indexing the WARC files:
+     * the first pass streams and parses all records, deferring the sitemaps
+     * referenced by an index already seen. The second pass expands the indexes
+     * by reading the deferred records at their offsets.
+     */
+    protected boolean twoPass = Boolean.valueOf(System.getProperty("sitemap.index.twoPass"));
+    /** two-pass mode: URLs of sitemaps referenced by the sitemap indexes parsed in the first pass */
+    protected Set<String> referencedSitemaps = ConcurrentHashMap.newKeySet();
+    /** two-pass mode: referenced sitemaps read in the first pass, processed in the second pass */
+    protected Map<String,Record> deferredRecords = new ConcurrentHashMap<>();
+    /** two-pass mode: sitemap indexes to be expanded in the second pass */
+    protected Queue<SiteMapIndex> pendingIndexes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Streaming mode: pass the decoded payload stream to the parser on the
+     * reader thread and consume the URLs by a callback, holding neither the
+     * payload nor the URL list in memory
+     */
+    protected boolean streaming = Boolean.valueOf(System.getProperty("sitemap.streaming"));
+    /** measure the peak live heap per document (slow, triggers full GCs) */
+    protected boolean measureHeap = Boolean.valueOf(System.getProperty("report.heap"));
+    /** sample the live heap every n URLs while parsing */
+    protected int heapSampleInterval = Integer.getInteger("report.heap.interval", 10000);
+    /**
+     * buffered mode: heap meter of the sitemap being parsed, sampled by the URL
+     * filter of the parser (see {@link #sampleHeap(String)})
+     */
+    protected volatile HeapMeter parseHeap;
+
+    protected class ArchiveRecordSitemapParser implements ParallelArchiveRecordProcessor, CorpusRecordProcessor {
         private SiteMapParser parser;
         private Set<String> acceptedUrls = new HashSet<>();
         public ArchiveRecordSitemapParser(SiteMapParser parser) {
@@ -56,38 +110,198 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
             acceptedUrls.add(url);
         }
         @Override
-        public void process(WarcRecord record, long offset) {
+        public Runnable prepare(WarcRecord record, long offset) {
             if (!(record instanceof WarcResponse)) {
-                return;
+                return null;
             }
             WarcResponse response = ((WarcResponse) record);
             String url = response.target();
-            if (!acceptedUrls.isEmpty() && !acceptedUrls.contains(url)) {
-                return;
+            boolean deferred = twoPass && referencedSitemaps.contains(url);
+            if (!deferred && !acceptedUrls.isEmpty() && !acceptedUrls.contains(url)) {
+                return null;
             }
             try {
                 Record warcRecord = new Record(response, offset);
+                if (deferred) {
+                    // only the location is kept, the record is read again in the second pass
+                    deferredRecords.putIfAbsent(url, warcRecord);
+                    return null;
+                }
+                if (streaming) {
+                    processStream((StreamingSiteMapParser) parser, url, warcRecord, getContentStream(response));
+                    return null;
+                }
                 byte[] content = getContent(response);
-                processRecord(parser, url, warcRecord, content, false);
+                return new PayloadTask(content.length, () -> processSitemap(parser, url, warcRecord, content));
             } catch (IOException | IllegalArgumentException e) { // TODO: remove IllegalArgumentException (jwarc#38)
                 LOG.error("Failed to process WARC record " + url, e);
-                counter.failedFetch++;
+                counter.failedFetch.increment();
             }
+            return null;
+        }
+        @Override
+        public Runnable prepare(CorpusRecord record) {
+            String url = record.url;
+            if (twoPass && referencedSitemaps.contains(url)) {
+                deferredRecords.putIfAbsent(url, record);
+                return null;
+            }
+            if (!acceptedUrls.isEmpty() && !acceptedUrls.contains(url)) {
+                return null;
+            }
+            if (streaming) {
+                return () -> processStream((StreamingSiteMapParser) parser, url, record, record.getContentStream());
+            }
+            // the payload is copied from the mapped corpus file by the worker
+            return new PayloadTask(record.getPayloadLength(), () -> processSitemap(parser, url, record, null));
         }
     }
 
     protected class Counter extends WarcTestProcessor.Counter {
-        int processedSubSitemaps = 0;
-        int failedParse = 0;
-        int nUrls = 0;
-        Map<String,Integer> byType = new HashMap<>();
-        int nUrlsWithExtension = 0;
-        Map<String,Integer> urlsWithExtension = new HashMap<>();
+        final LongAdder processedSubSitemaps = new LongAdder();
+        final LongAdder failedParse = new LongAdder();
+        final LongAdder nUrls = new LongAdder();
+        Map<String,LongAdder> byType = new ConcurrentHashMap<>();
+        final LongAdder nUrlsWithExtension = new LongAdder();
+        Map<String,LongAdder> urlsWithExtension = new ConcurrentHashMap<>();
+        final LongAdder indexesExpanded = new LongAdder();
+        final LongAdder nestedIndexes = new LongAdder();
+        /** number of leaf sitemaps reached per expanded sitemap index */
+        final LatencyHistogram indexFanOut = new LatencyHistogram();
+        final TopN slowestIndexExpansions = new TopN(Integer.getInteger("report.indexes.top", 10));
+        /** two-pass mode: sitemaps referenced by indexes and deferred to the second pass */
+        final LongAdder referencedSitemaps = new LongAdder();
+        final LongAdder deferredSitemaps = new LongAdder();
+        /** peak live heap per document (payload, parser state and parsed sitemap) */
+        final LatencyHistogram peakHeap = new LatencyHistogram();
+        final TopN topPeakHeap = new TopN(Integer.getInteger("report.allocations.top", 10));
+        /**
+         * count unique URLs and hosts over all sitemaps: <code>exact</code>
+         * (sets of 64-bit fingerprints) or <code>hll</code> (HyperLogLog
+         * estimate), not counted if unset
+         */
+        final String uniqueMode = System.getProperty("sitemap.urls.unique");
+        /** exact mode: fingerprints of the extracted URLs and their hosts */
+        ConcurrentLongHashSet uniqueUrls, uniqueHosts;
+        /** hll mode: estimated number of unique URLs and hosts */
+        HyperLogLog urlSketch, hostSketch;
+        /** exact mode: URLs extracted and URLs seen first per site (host of the sitemap) */
+        final Map<String,long[]> urlsBySite = new ConcurrentHashMap<>();
+        final int topSites = Integer.getInteger("report.sites.top", 10);
+        /** exact mode: URLs and unique URLs reached from expanded sitemap indexes */
+        final LongAdder indexUrls = new LongAdder();
+        final LongAdder indexUniqueUrls = new LongAdder();
+        final TopN topIndexDuplicates = new TopN(Integer.getInteger("report.indexes.top", 10));
+
+        public boolean isCountingUnique() {
+            return uniqueUrls != null || urlSketch != null;
+        }
+
+        /**
+         * Count an extracted URL and its host as unique.
+         *
+         * @return true if the URL was not seen before, always false if
+         *         estimated
+         */
+        public boolean addUniqueUrl(URL url) {
+            return addUnique(Fingerprint.of(url.toString()), Fingerprint.of(url.getHost()));
+        }
+
+        /** @see #addUniqueUrl(URL) */
+        public boolean addUnique(long fingerprint, long hostFingerprint) {
+            if (uniqueUrls != null) {
+                uniqueHosts.add(hostFingerprint);
+                return uniqueUrls.add(fingerprint);
+            }
+            urlSketch.add(fingerprint);
+            hostSketch.add(hostFingerprint);
+            return false;
+        }
+
+        /** exact mode: count URLs extracted from a sitemap of a site and how many of them were seen first */
+        public void recordSiteUrls(String site, long urls, long newUrls) {
+            if (uniqueUrls == null) {
+                return;
+            }
+            long[] c = urlsBySite.computeIfAbsent(site, k -> new long[2]);
+            synchronized (c) {
+                c[0] += urls;
+                c[1] += newUrls;
+            }
+        }
+
+        public void recordPeakHeap(String url, long bytes) {
+            peakHeap.record(Math.max(0, bytes));
+            topPeakHeap.offer(bytes, url);
+        }
+
+        public void recordIndexExpansion(String url, long nanos, IndexExpansion expansion) {
+            long leaves = expansion.leafSitemaps.sum();
+            indexesExpanded.increment();
+            nestedIndexes.add(expansion.subIndexes.sum());
+            indexFanOut.record(leaves);
+            recordLatency("index expansion", nanos);
+            long urls = expansion.urls.sum();
+            String unique = "";
+            if (expansion.uniqueUrls != null) {
+                long n = expansion.uniqueUrls.size();
+                indexUrls.add(urls);
+                indexUniqueUrls.add(n);
+                unique = ", " + n + " unique";
+                topIndexDuplicates.offer(urls - n, url + " (" + n + " unique of " + urls + " URLs)");
+            }
+            slowestIndexExpansions.offer(nanos,
+                    url + " (" + leaves + " sitemaps, " + expansion.subIndexes.sum() + " indexes, " + urls + " URLs" + unique + ")");
+        }
 
         public Counter() {
             for (SitemapType type : SitemapType.values()) {
-                byType.put(type.name(), 0);
+                byType.put(type.name(), new LongAdder());
+            }
+            if ("exact".equals(uniqueMode)) {
+                uniqueUrls = new ConcurrentLongHashSet(256, 1 << 16);
+                uniqueHosts = new ConcurrentLongHashSet();
+            } else if ("hll".equals(uniqueMode)) {
+                int precision = Integer.getInteger("sitemap.urls.unique.precision", 14);
+                urlSketch = new HyperLogLog(precision);
+                hostSketch = new HyperLogLog(precision);
+            } else if (uniqueMode != null) {
+                throw new IllegalArgumentException("Unknown mode to count unique URLs (sitemap.urls.unique): " + uniqueMode);
+            }
+        }
+
+        public long getUniqueUrls() {
+            return uniqueUrls != null ? uniqueUrls.size() : urlSketch.estimate();
+        }
+
+        public long getUniqueHosts() {
+            return uniqueHosts != null ? uniqueHosts.size() : hostSketch.estimate();
+        }
+
+        @Override
+        public Map<String,Number> metrics() {
+            Map<String,Number> metrics = super.metrics();
+            metrics.put("failedToParse", failedParse.sum());
+            metrics.put("subSitemapsProcessed", processedSubSitemaps.sum());
+            metrics.put("urlsExtracted", nUrls.sum());
+            for (Map.Entry<String,LongAdder> e : byType.entrySet()) {
+                metrics.put("sitemaps" + e.getKey().trim(), e.getValue().sum());
+            }
+            metrics.put("urlsWithExtension", nUrlsWithExtension.sum());
+            metrics.put("indexesExpanded", indexesExpanded.sum());
+            if (isCountingUnique()) {
+                metrics.put("urlsUnique", getUniqueUrls());
+                metrics.put("hostsUnique", getUniqueHosts());
             }
+            return metrics;
+        }
+
+        @Override
+        public String[] rateMetrics() {
+            String[] rates = super.rateMetrics();
+            rates = Arrays.copyOf(rates, rates.length + 1);
+            rates[rates.length - 1] = "urlsExtracted";
+            return rates;
         }
 
         @Override
@@ -104,40 +318,148 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
                 log.info("{}\t{}", f(urlsWithExtension.get(ext)), ext);
             }
         }
+
+        public void logIndexExpansion(Logger log) {
+            if (indexesExpanded.sum() == 0) {
+                return;
+            }
+            log.info("{}\tsitemap indexes expanded", f(indexesExpanded));
+            if (twoPass) {
+                log.info("{}\tsitemaps referenced by indexes (first pass)", f(referencedSitemaps));
+                log.info("{}\treferenced sitemaps deferred to the second pass", f(deferredSitemaps));
+                log.info("{}\treferenced sitemaps not deferred (parsed before the index or not in WARC)",
+                        f(referencedSitemaps.sum() - deferredSitemaps.sum()));
+            }
+            log.info("{}\tnested sitemap indexes", f(nestedIndexes));
+            log.info("{}\tleaf sitemaps reached from indexes", f(indexFanOut.getSum()));
+            log.info("{}\tfan-out (leaf sitemaps per index): mean", fRatio(indexFanOut.getSum(), indexFanOut.getCount()));
+            log.info("{}\tfan-out (leaf sitemaps per index): p50", f(indexFanOut.getValueAtPercentile(50.0)));
+            log.info("{}\tfan-out (leaf sitemaps per index): p90", f(indexFanOut.getValueAtPercentile(90.0)));
+            log.info("{}\tfan-out (leaf sitemaps per index): max", f(indexFanOut.getMax()));
+            log.info("Slowest sitemap index expansions (ms):");
+            for (TopN.Entry e : slowestIndexExpansions.get()) {
+                log.info("{}\t{}", f(e.value / 1000000), e.key);
+            }
+            if (indexUrls.sum() > 0) {
+                log.info("{}\tURLs reached from indexes: unique per index", f(indexUniqueUrls));
+                log.info("{}\tURLs reached from indexes: duplicate ratio",
+                        fPercent(indexUrls.sum() - indexUniqueUrls.sum(), indexUrls.sum()));
+                log.info("Sitemap indexes with most duplicate URLs:");
+                for (TopN.Entry e : topIndexDuplicates.get()) {
+                    log.info("{}\t{}", f(e.value), e.key);
+                }
+            }
+        }
+
+        public void logUnique(Logger log) {
+            if (!isCountingUnique()) {
+                return;
+            }
+            long urls = nUrls.sum();
+            long unique = getUniqueUrls();
+            if (urlSketch != null) {
+                log.info("Unique URLs and hosts estimated by HyperLogLog (standard error {}):",
+                        fPercent(Math.round(urlSketch.getStandardError() * 1000000), 1000000).trim());
+            }
+            log.info("{}\tunique URLs", f(unique));
+            log.info("{}\tduplicate URLs (extracted - unique)", f(Math.max(0, urls - unique)));
+            log.info("{}\tduplicate ratio", fPercent(Math.max(0, urls - unique), urls));
+            log.info("{}\tunique hosts", f(getUniqueHosts()));
+            long memory = uniqueUrls != null ? uniqueUrls.estimateMemory() + uniqueHosts.estimateMemory()
+                    : urlSketch.estimateMemory() + hostSketch.estimateMemory();
+            log.info("{}\tbytes held to count unique URLs and hosts", f(memory));
+            if (uniqueUrls != null && !urlsBySite.isEmpty()) {
+                TopN top = new TopN(topSites);
+                long sitesWithDuplicates = 0;
+                for (Map.Entry<String,long[]> e : urlsBySite.entrySet()) {
+                    long[] c = e.getValue();
+                    long duplicates = c[0] - c[1];
+                    if (duplicates > 0) {
+                        sitesWithDuplicates++;
+                        top.offer(duplicates, e.getKey() + " (" + fPercent(duplicates, c[0]).trim() + " of " + c[0] + " URLs)");
+                    }
+                }
+                log.info("{}\tsites (hosts of sitemaps)", f(urlsBySite.size()));
+                log.info("{}\tsites listing URLs seen before", f(sitesWithDuplicates));
+                log.info("Sites with most duplicate URLs:");
+                for (TopN.Entry e : top.get()) {
+                    log.info("{}\t{}", f(e.value), e.key);
+                }
+            }
+        }
+
+        public void logHeap(Logger log) {
+            if (peakHeap.getCount() == 0) {
+                return;
+            }
+            log.info("Peak live heap per document ({} mode):", streaming ? "streaming" : "buffered");
+            log.info("{}\tbytes: mean", fRatio(peakHeap.getSum(), peakHeap.getCount()));
+            log.info("{}\tbytes: p50", f(peakHeap.getValueAtPercentile(50.0)));
+            log.info("{}\tbytes: p99", f(peakHeap.getValueAtPercentile(99.0)));
+            log.info("{}\tbytes: max", f(peakHeap.getMax()));
+            log.info("Documents with highest peak live heap (bytes):");
+            for (TopN.Entry e : topPeakHeap.get()) {
+                log.info("{}\t{}", f(e.value), e.key);
+            }
+        }
+
+        @Override
+        public void report(Logger log) {
+            super.report(log);
+            logIndexExpansion(log);
+            logUnique(log);
+            logHeap(log);
+        }
+
+        @Override
+        public void logAllocation(Logger log) {
+            super.logAllocation(log);
+            if (AllocationMeter.isSupported()) {
+                log.info("{}\tbytes allocated per extracted URL", fRatio(allocated.sum(), nUrls.sum()));
+            }
+        }
     }
 
-    protected void processRecord(SiteMapParser parser, String urlString, Record record, byte[] content, boolean isSubsitemap) {
+    /**
+     * Parse a sitemap and count the results. Sitemap indexes are not expanded.
+     * 
+     * @param depth
+     *            0 for sitemaps processed from the WARC file(s), &gt;0 for
+     *            sitemaps referenced from a sitemap index
+     * @return the parsed sitemap or null if the sitemap was skipped or failed
+     *         to fetch or parse
+     */
+    protected AbstractSiteMap processRecord(SiteMapParser parser, String urlString, Record record, byte[] content, int depth) {
         LOG.debug("Processing sitemap {}", urlString);
         if (record == null) {
-            // try to achieve indexed record
-            record = getRecord(urlString);
+            // try to achieve indexed or deferred record
+            record = twoPass ? deferredRecords.get(urlString) : getRecord(urlString);
             if (record == null) {
                 LOG.debug("No WARC record found for {}", urlString);
-                return;
+                return null;
             }
         }
-        if (record.isProcessed) {
+        if (!record.markProcessed()) {
             LOG.debug("WARC record already processed, skipping {}", urlString);
-            return;
+            return null;
         }
-        record.isProcessed = true;
         if (record.status != 200) {
             // TODO: follow redirects if indexed
             LOG.warn("Failed to fetch {} (HTTP status = {})", urlString, record.status);
-            counter.failedFetch++;
-            return;
+            counter.failedFetch.increment();
+            return null;
         }
-        if (isSubsitemap) {
-            counter.processedSubSitemaps++;
+        if (depth > 0) {
+            counter.processedSubSitemaps.increment();
         } else {
-            counter.processed++;
+            counter.processed.increment();
         }
         if (content == null) {
             try {
                 content = record.getContent();
             } catch (IOException e) {
                 LOG.error("Failed to get record for {}: {}", urlString, record);
-                return;
+                return null;
             }
         }
         AbstractSiteMap sitemap;
@@ -146,76 +468,410 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
             url = new URL(urlString);
         } catch (MalformedURLException e) {
             LOG.error("Invalid URL {}: {}", urlString, e);
-            counter.failedFetch++;
-            return;
+            counter.failedFetch.increment();
+            return null;
         }
-        long start = System.currentTimeMillis();
+        HeapMeter heap = null;
+        if (measureHeap) {
+            heap = new HeapMeter();
+            heap.start();
+            parseHeap = heap;
+        }
+        long allocStart = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed = 0;
         try {
             LOG.debug("Parsing sitemap {}", url);
-            sitemap = parser.parseSiteMap(content, url);
+            sitemap = parseSiteMap(parser, content, url);
+        } catch (TimeoutException e) {
+            LOG.warn("Abandoned parsing sitemap {} after {} ms (warc.parse.timeout)", urlString, parseTimeout);
+            counter.recordLatency("type abandoned", System.nanoTime() - start);
+            quarantine(urlString, record, content);
+            return null;
         } catch (UnknownFormatException e) {
             LOG.error("Failed to parse sitemap {}", urlString, e);
-            counter.failedParse++;
-            return;
+            counter.failedParse.increment();
+            counter.recordLatency("type failed", System.nanoTime() - start);
+            return null;
         } catch (IOException e) {
             LOG.error("Error processing sitemap {}", urlString, e);
-            counter.failedParse++;
+            counter.failedParse.increment();
+            counter.recordLatency("type failed", System.nanoTime() - start);
+            return null;
+        } finally {
+            // exclude the time spent measuring the heap
+            elapsed = (System.nanoTime() - start) - (heap == null ? 0 : heap.getNanos());
+            parseHeap = null;
+            recordParse(urlString, content.length, elapsed, allocStart);
+        }
+        if (heap != null) {
+            // the payload and the parsed sitemap are both reachable, the
+            // payload is part of the base line of the samples
+            heap.sample();
+            counter.recordPeakHeap(urlString, content.length + heap.getPeak());
+        }
+        long nUrls = sitemap.isIndex() ? 0 : ((SiteMap) sitemap).getSiteMapUrls().size();
+        countSitemap(urlString, sitemap, elapsed, nUrls);
+        return sitemap;
+    }
+
+    /**
+     * URL filter sampling the live heap every <code>report.heap.interval</code>
+     * URLs while a sitemap is parsed in buffered mode, as the URL consumer
+     * does in streaming mode
+     */
+    protected String sampleHeap(String url) {
+        HeapMeter heap = parseHeap;
+        if (heap != null) {
+            heap.sample(heapSampleInterval);
+        }
+        return url;
+    }
+
+    /** Parse a sitemap, within the time budget if <code>warc.parse.timeout</code> is set */
+    private AbstractSiteMap parseSiteMap(SiteMapParser parser, byte[] content, URL url)
+            throws UnknownFormatException, IOException, TimeoutException {
+        if (watchdog == null) {
+            return parser.parseSiteMap(content, url);
+        }
+        try {
+            return watchdog.call(() -> parser.parseSiteMap(content, url));
+        } catch (UnknownFormatException | IOException | TimeoutException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            // not thrown by parseSiteMap
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Streaming mode: parse a sitemap from the decoded payload stream and
+     * count the URLs passed by the parser. Sitemap indexes are not expanded.
+     */
+    protected void processStream(StreamingSiteMapParser parser, String urlString, Record record, InputStream stream) {
+        LOG.debug("Processing sitemap {} (streaming)", urlString);
+        if (record.status != 200) {
+            LOG.warn("Failed to fetch {} (HTTP status = {})", urlString, record.status);
+            counter.failedFetch.increment();
+            return;
+        }
+        counter.processed.increment();
+        URL url;
+        try {
+            url = new URL(urlString);
+        } catch (MalformedURLException e) {
+            LOG.error("Invalid URL {}: {}", urlString, e);
+            counter.failedFetch.increment();
+            return;
+        }
+        CountingInputStream in = new CountingInputStream(stream);
+        HeapMeter heap = measureHeap ? new HeapMeter() : null;
+        long[] nUrls = new long[1];
+        // fingerprints of the URLs and hosts, counted as unique after parsing
+        // because the URLs of sitemap indexes are also passed to the consumer
+        long[][] fingerprints = new long[1][];
+        if (counter.isCountingUnique()) {
+            fingerprints[0] = new long[256];
+        }
+        Consumer<SiteMapURL> consumer = su -> {
+            if (heap != null && (nUrls[0] % heapSampleInterval) == 0) {
+                heap.sample();
+            }
+            if (fingerprints[0] != null) {
+                int i = 2 * (int) nUrls[0];
+                if (i == fingerprints[0].length) {
+                    fingerprints[0] = Arrays.copyOf(fingerprints[0], 2 * i);
+                }
+                fingerprints[0][i] = Fingerprint.of(su.getUrl().toString());
+                fingerprints[0][i + 1] = Fingerprint.of(su.getUrl().getHost());
+            }
+            nUrls[0]++;
+        };
+        if (heap != null) {
+            heap.start();
+        }
+        AbstractSiteMap sitemap;
+        long allocStart = AllocationMeter.allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed = 0;
+        try {
+            sitemap = parser.parse(in, url, consumer);
+        } catch (UnknownFormatException | IOException e) {
+            LOG.error("Failed to parse sitemap {}", urlString, e);
+            counter.failedParse.increment();
+            counter.recordLatency("type failed", System.nanoTime() - start);
             return;
         } finally {
-            long elapsed = (System.currentTimeMillis() - start);
-            if (elapsed > 300) {
-                LOG.warn("Process sitemap {} took {}ms", urlString, elapsed);
+            // exclude the time spent measuring the heap
+            elapsed = (System.nanoTime() - start) - (heap == null ? 0 : heap.getNanos());
+            recordParse(urlString, in.getCount(), elapsed, allocStart);
+            if (heap != null) {
+                counter.recordPeakHeap(urlString, heap.getPeak());
             }
-            counter.elapsed += elapsed;
         }
-        if (sitemap.isIndex()) {
-            if (isSubsitemap) {
-                LOG.warn("Recursive sitemap index skipped: {}", urlString);
-            } else {
-                Collection<AbstractSiteMap> links = ((SiteMapIndex) sitemap).getSitemaps();
-                for (AbstractSiteMap asm : links) {
-                    processRecord(parser, asm.getUrl().toString(), null, null, true);
+        countSitemap(urlString, sitemap, elapsed, sitemap.isIndex() ? 0 : nUrls[0]);
+        if (fingerprints[0] != null && !sitemap.isIndex()) {
+            long newUrls = 0;
+            for (int i = 0; i < 2 * nUrls[0]; i += 2) {
+                if (counter.addUnique(fingerprints[0][i], fingerprints[0][i + 1])) {
+                    newUrls++;
                 }
             }
-        } else {
-            int size = ((SiteMap) sitemap).getSiteMapUrls().size();
-            LOG.info("Extracted {} URLs from {} ({})", size, urlString, sitemap.getType());
-            counter.nUrls += size;
+            counter.recordSiteUrls(url.getHost(), nUrls[0], newUrls);
+        }
+    }
+
+    /** record latency and allocations of parsing a document */
+    private void recordParse(String urlString, long inputLength, long elapsed, long allocStart) {
+        long allocated = watchdog != null ? watchdog.getAllocated() : AllocationMeter.allocatedSince(allocStart);
+        counter.recordAllocation(urlString, inputLength, allocated);
+        if (elapsed > 300000000L) {
+            LOG.warn("Process sitemap {} took {}ms", urlString, (elapsed / 1000000));
+        }
+        counter.elapsed.add(elapsed);
+        if (phases != null) {
+            phases.record(Phase.PARSE, elapsed);
+        }
+        counter.recordLatency("all", elapsed);
+        counter.recordLatency(counter.sizeBucket(inputLength), elapsed);
+    }
+
+    /** count a successfully parsed sitemap and its URLs */
+    private void countSitemap(String urlString, AbstractSiteMap sitemap, long elapsed, long nUrls) {
+        long start = System.nanoTime();
+        counter.recordLatency("type " + sitemap.getType(), elapsed);
+        if (!sitemap.isIndex()) {
+            LOG.info("Extracted {} URLs from {} ({})", nUrls, urlString, sitemap.getType());
+            counter.nUrls.add(nUrls);
             Set<Extension> usedExtensions = new TreeSet<>();
             if (enableSitemapExtensions) {
                 for (SiteMapURL su : ((SiteMap) sitemap).getSiteMapUrls()) {
                     if (su.getAttributes() != null) {
-                        counter.nUrlsWithExtension++;
+                        counter.nUrlsWithExtension.increment();
                         for (Extension ext : su.getAttributes().keySet()) {
                             usedExtensions.add(ext);
-                            Integer cnt = counter.urlsWithExtension.get(ext.toString());
-                            counter.urlsWithExtension.put(ext.toString(), cnt == null ? 1 : 1 + cnt);
+                            counter.increment(counter.urlsWithExtension, ext.toString());
                         }
                     }
                 }
                 for (Extension ext : usedExtensions) {
                     String extType = "  XML " + ext.toString() + " sitemaps";
-                    Integer cnt = counter.byType.get(extType);
-                    counter.byType.put(extType, cnt == null ? 1 : 1 + cnt);
+                    counter.increment(counter.byType, extType);
                 }
             }
+            if (counter.isCountingUnique() && !streaming) {
+                // streaming mode: URLs are counted by the caller
+                long newUrls = 0;
+                for (SiteMapURL su : ((SiteMap) sitemap).getSiteMapUrls()) {
+                    if (counter.addUniqueUrl(su.getUrl())) {
+                        newUrls++;
+                    }
+                }
+                counter.recordSiteUrls(sitemap.getUrl().getHost(), nUrls, newUrls);
+            }
         }
-        if ((counter.processed % 50) == 0) {
+        if ((counter.processed.sum() % 50) == 0) {
             LOG.info("Processed {} sitemaps, {} URLs extracted.", counter.processed, counter.nUrls);
         }
-        String type = sitemap.getType().toString();
-        counter.byType.put(type, counter.byType.get(type) + 1);
-        counter.success++;
+        counter.increment(counter.byType, sitemap.getType().toString());
+        counter.success.increment();
+        if (phases != null) {
+            phases.record(Phase.POST_PROCESSING, System.nanoTime() - start);
+        }
     }
 
-    public void run(SiteMapParser parser, String[] warcPaths) throws MalformedURLException, IOException {
+    /**
+     * Process a sitemap read from the WARC file(s). If the WARC files are
+     * indexed, sitemap indexes are expanded recursively. In two-pass mode,
+     * the expansion is postponed to the second pass.
+     */
+    protected void processSitemap(SiteMapParser parser, String urlString, Record record, byte[] content) {
+        if (twoPass && referencedSitemaps.contains(urlString)) {
+            // index parsed by another worker after the record was read
+            deferredRecords.putIfAbsent(urlString, record);
+            return;
+        }
+        AbstractSiteMap sitemap = processRecord(parser, urlString, record, content, 0);
+        if (sitemap == null || !sitemap.isIndex()) {
+            return;
+        }
         if (indexed) {
-            ArchiveRecordProcessor proc = new ArchiveRecordIndexer(0);
-            for (String warcPath : warcPaths) {
-                int warcId = warcFiles.size();
-                ((ArchiveRecordIndexer) proc).setWarcId(warcId);
-               readWarcFile(warcPath, proc);
+            expandIndex(parser, urlString, (SiteMapIndex) sitemap);
+        } else if (twoPass) {
+            for (AbstractSiteMap asm : ((SiteMapIndex) sitemap).getSitemaps()) {
+                referencedSitemaps.add(asm.getUrl().toString());
             }
+            pendingIndexes.add((SiteMapIndex) sitemap);
+        }
+    }
+
+    /**
+     * Second pass of the two-pass mode: expand the sitemap indexes parsed in
+     * the first pass, reading the deferred sitemaps at their recorded offsets.
+     */
+    protected void expandPendingIndexes(SiteMapParser parser) {
+        LOG.info("Expanding {} sitemap indexes, {} of {} referenced sitemaps deferred", pendingIndexes.size(),
+                deferredRecords.size(), referencedSitemaps.size());
+        SiteMapIndex index;
+        while ((index = pendingIndexes.poll()) != null) {
+            expandIndex(parser, index.getUrl().toString(), index);
+        }
+        counter.referencedSitemaps.add(referencedSitemaps.size());
+        counter.deferredSitemaps.add(deferredRecords.size());
+    }
+
+    /**
+     * Expand a sitemap index: the referenced sitemaps are parsed in parallel
+     * as fork-join tasks, nested sitemap indexes are followed up to
+     * <code>sitemap.index.maxDepth</code>.
+     */
+    protected void expandIndex(SiteMapParser parser, String urlString, SiteMapIndex index) {
+        IndexExpansion expansion = new IndexExpansion();
+        if (counter.uniqueUrls != null) {
+            expansion.uniqueUrls = new ConcurrentLongHashSet();
+        }
+        long start = System.nanoTime();
+        getForkJoinPool().invoke(new SitemapIndexTask(parser, index, 1, expansion));
+        long elapsed = System.nanoTime() - start;
+        counter.recordIndexExpansion(urlString, elapsed, expansion);
+    }
+
+    protected synchronized ForkJoinPool getForkJoinPool() {
+        if (forkJoinPool == null) {
+            forkJoinPool = new ForkJoinPool(numThreads);
+        }
+        return forkJoinPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (forkJoinPool != null) {
+                forkJoinPool.shutdown();
+                forkJoinPool = null;
+            }
+        }
+        super.close();
+    }
+
+    /** statistics of the expansion of one sitemap index */
+    protected static class IndexExpansion {
+        final LongAdder leafSitemaps = new LongAdder();
+        final LongAdder subIndexes = new LongAdder();
+        final LongAdder urls = new LongAdder();
+        /** exact mode: fingerprints of the URLs reached from the index */
+        ConcurrentLongHashSet uniqueUrls;
+    }
+
+    /** fork-join task parsing all sitemaps referenced by a sitemap index */
+    protected class SitemapIndexTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final SiteMapParser parser;
+        private final SiteMapIndex index;
+        private final int depth;
+        private final IndexExpansion expansion;
+
+        public SitemapIndexTask(SiteMapParser parser, SiteMapIndex index, int depth, IndexExpansion expansion) {
+            this.parser = parser;
+            this.index = index;
+            this.depth = depth;
+            this.expansion = expansion;
+        }
+
+        @Override
+        protected void compute() {
+            List<SitemapTask> tasks = new ArrayList<>();
+            for (AbstractSiteMap asm : index.getSitemaps()) {
+                tasks.add(new SitemapTask(parser, asm.getUrl().toString(), depth, expansion));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /** fork-join task parsing a sitemap referenced by a sitemap index */
+    protected class SitemapTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final SiteMapParser parser;
+        private final String url;
+        private final int depth;
+        private final IndexExpansion expansion;
+
+        public SitemapTask(SiteMapParser parser, String url, int depth, IndexExpansion expansion) {
+            this.parser = parser;
+            this.url = url;
+            this.depth = depth;
+            this.expansion = expansion;
+        }
+
+        @Override
+        protected void compute() {
+            AbstractSiteMap sitemap = processRecord(parser, url, null, null, depth);
+            if (sitemap == null) {
+                return;
+            }
+            if (sitemap.isIndex()) {
+                expansion.subIndexes.increment();
+                if (depth < maxIndexDepth) {
+                    new SitemapIndexTask(parser, (SiteMapIndex) sitemap, depth + 1, expansion).compute();
+                } else {
+                    LOG.warn("Recursive sitemap index skipped (max. depth {} reached): {}", maxIndexDepth, url);
+                }
+            } else {
+                expansion.leafSitemaps.increment();
+                expansion.urls.add(((SiteMap) sitemap).getSiteMapUrls().size());
+                if (expansion.uniqueUrls != null) {
+                    for (SiteMapURL su : ((SiteMap) sitemap).getSiteMapUrls()) {
+                        expansion.uniqueUrls.add(Fingerprint.of(su.getUrl().toString()));
+                    }
+                }
+            }
+        }
+    }
+
+    public void run(SiteMapParser parser, String[] warcPaths) throws MalformedURLException, IOException {
+        if (indexed && twoPass) {
+            LOG.warn("Two-pass mode (sitemap.index.twoPass) ignored, WARC files are indexed");
+            twoPass = false;
+        }
+        if (twoPass && maxIndexDepth > 1) {
+            // the sitemaps of nested indexes are only known after the first pass
+            LOG.warn("Nested sitemap indexes are not expanded in two-pass mode, sitemap.index.maxDepth ({}) ignored",
+                    maxIndexDepth);
+            maxIndexDepth = 1;
+        }
+        for (String warcPath : warcPaths) {
+            if (indexed && PayloadCorpus.isCorpus(warcPath)) {
+                throw new IllegalArgumentException("Payload corpus cannot be indexed (warc.index): " + warcPath);
+            }
+        }
+        if (streaming && (indexed || twoPass)) {
+            LOG.warn("Streaming mode (sitemap.streaming) ignored, sitemap indexes are expanded");
+            streaming = false;
+        }
+        if (streaming && enableSitemapExtensions) {
+            // the URLs passed to the consumer hold no extension attributes
+            LOG.warn("Streaming mode (sitemap.streaming) ignored, sitemap extensions are counted");
+            streaming = false;
+        }
+        if (streaming && watchdog != null) {
+            // the abandoned parser would continue to read from the WARC file
+            LOG.warn("Time budget per document (warc.parse.timeout) ignored in streaming mode");
+            watchdog.close();
+            watchdog = null;
+        }
+        if (streaming && !(parser instanceof StreamingSiteMapParser)) {
+            throw new IllegalArgumentException("Streaming mode requires a StreamingSiteMapParser");
+        }
+        if (measureHeap && (numThreads > 1 || isSharded())) {
+            LOG.warn("Live heap measurements (report.heap) are not reliable with multiple threads");
+        }
+        if (measureHeap && !streaming) {
+            parser.setURLFilter(this::sampleHeap);
+        }
+        resetPhases();
+        CounterMetrics metrics = publishMetrics(counter);
+        if (indexed) {
+            indexWarcFiles(warcPaths);
         }
 
         if (urlToBeParsed != null) {
@@ -225,11 +881,12 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
         long start = System.currentTimeMillis();
 
         if (indexed) {
-            for (Entry<String, Record> e : records.entrySet()) {
-                if (urlToBeParsed == null || urlToBeParsed.equals(e.getKey())) {
-                    processRecord(parser, e.getKey(), e.getValue(), null, false);
+            for (int id = 0; id < records.size(); id++) {
+                String url = records.getUrl(id);
+                if (urlToBeParsed == null || urlToBeParsed.equals(url)) {
+                    processSitemap(parser, url, getRecord(id), null);
                 } else {
-                    LOG.debug("Skipping URL <{}>", e.getKey());
+                    LOG.debug("Skipping URL <{}>", url);
                 }
             }
         } else {
@@ -237,19 +894,46 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
             if (urlToBeParsed != null) {
                 proc.filterAllowUrl(urlToBeParsed);
             }
-            for (String warcPath : warcPaths) {
-                readWarcFile(warcPath, proc);
+            readInputs(warcPaths, proc);
+            if (twoPass) {
+                LOG.info("First pass finished, elapsed: {} ms", (System.currentTimeMillis() - start));
+                expandPendingIndexes(parser);
             }
         }
 
-        LOG.info("Finished processing, elapsed: {} ms", (System.currentTimeMillis() - start));
-        counter.log(LOG);
+        counter.wallMillis = System.currentTimeMillis() - start;
+        LOG.info("Finished processing, elapsed: {} ms", counter.wallMillis);
+        counter.report(LOG);
+        closeWatchdog();
+        if (metrics != null) {
+            metrics.close();
+        }
+    }
+
+    public static SiteMapParser createParser(boolean strict, boolean partial, boolean strictNamespace, boolean lazyNamespace,
+            boolean extensions) {
+        return configureParser(new SiteMapParser(strict, partial), strictNamespace, lazyNamespace, extensions);
+    }
+
+    public static SiteMapParser configureParser(SiteMapParser parser, boolean strictNamespace, boolean lazyNamespace,
+            boolean extensions) {
+        parser.setStrictNamespace(strictNamespace);
+        if (lazyNamespace) {
+            parser.setStrictNamespace(true);
+            parser.addAcceptedNamespace(Namespace.SITEMAP_LEGACY);
+            parser.addAcceptedNamespace(Namespace.EMPTY);
+        }
+        if (extensions) {
+            parser.enableExtensions();
+            parser.setStrictNamespace(true);
+        }
+        return parser;
     }
 
     public static void main(String[] args) throws MalformedURLException, IOException {
 
         if (args.length < 1) {
-            LOG.error("Usage:  SiteMapPerformanceTest <WARC-file>...");
+            LOG.error("Usage:  SiteMapPerformanceTest <WARC-file|corpus-file>...");
             LOG.error("Java properties:");
             LOG.error("  sitemap.strict  (boolean) strict URL checking (no cross-submits)");
             LOG.error("  sitemap.partial (boolean) accept URLs from partially parsed or invalid documents");
@@ -257,8 +941,35 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
             LOG.error("  sitemap.lazyNamespace (boolean) enable lazy namespace checking");
             LOG.error("  sitemap.extensions (boolean) enable support for sitemap extensions");
             LOG.error("  warc.index      (boolean) index WARC files and parse sitemap indexes recursively");
+            LOG.error("  warc.index.sidecar (boolean) persist the index in sidecar files (<warc-file>.idx)");
+            LOG.error("  sitemap.index.maxDepth (int) max. depth nested sitemap indexes are followed (default: 1, not in two-pass mode)");
+            LOG.error("  sitemap.index.twoPass (boolean) expand sitemap indexes in a second pass without indexing");
+            LOG.error("  sitemap.streaming (boolean) parse from the payload stream, consume URLs by callback");
+            LOG.error("                            (ignored with warc.index, sitemap.index.twoPass or sitemap.extensions)");
+            LOG.error("  sitemap.urls.unique (String) count unique URLs and hosts: exact (64-bit fingerprints) or hll (estimate)");
+            LOG.error("  sitemap.urls.unique.precision (int) hll: register index bits, 4-18 (default: 14, 0.8% std. error)");
             LOG.error("  warc.parse.url  (String/URL) parse sitemap indexed by URL");
             LOG.error("                            (recursively if it's a sitemap index and warc.index is true)");
+            LOG.error("  warc.threads    (int) number of threads parsing sitemaps (default: 1)");
+            LOG.error("  warc.shards     (int) number of WARC files read and processed concurrently (default: 1)");
+            LOG.error("  warc.splits     (int) split compressed WARC files into n ranges read concurrently (default: 1)");
+            LOG.error("  warc.inflight.maxBytes (long) max. bytes of payloads in flight to worker threads (default: unlimited)");
+            LOG.error("  warc.inflight.oversize (long) payloads larger than this are parsed one by one (default: maxBytes / threads)");
+            LOG.error("  warc.parse.timeout (long) time budget per sitemap in ms, slower parses are abandoned (default: unlimited)");
+            LOG.error("                            (ignored in streaming mode)");
+            LOG.error("  warc.parse.quarantine (String/path) copy sitemaps exceeding the time budget to this WARC file");
+            LOG.error("  report.histograms (String/path) write latency histograms to file");
+            LOG.error("  report.sites.top (int) number of sites with most duplicate URLs listed (default: 10)");
+            LOG.error("  report.heap     (boolean) measure peak live heap per document (slow, full GCs)");
+            LOG.error("  report.heap.interval (int) sample live heap every n URLs while parsing (default: 10000)");
+            LOG.error("  report.jmx      (boolean) publish counters and rates as MBean crawlercommons:type=SiteMapPerformanceTest");
+            LOG.error("  report.jmx.window (int) rolling window in seconds for rates published via JMX (default: 10)");
+            LOG.error("  report.repetitions (int) number of measured runs (default: 1)");
+            LOG.error("  report.warmup   (int) number of warm-up runs not recorded (default: 0)");
+            LOG.error("  report.results  (String/path) write configuration and results to file (JSON, or CSV if suffix is .csv)");
+            LOG.error("  report.baseline (String/path) compare with results of a previous run, exit with 2 on regression");
+            LOG.error("  report.baseline.threshold (double) min. change in percent flagged as regression (default: 5.0)");
+            LOG.error("  report.phases   (boolean) report time per phase (WARC read, payload decoding, parsing, etc.)");
             System.exit(1);
         }
 
@@ -266,22 +977,38 @@ public class SiteMapPerformanceTest extends WarcTestProcessor {
 
         boolean sitemapStrict = Boolean.valueOf(System.getProperty("sitemap.strict"));
         boolean sitemapPartial = Boolean.valueOf(System.getProperty("sitemap.partial"));
-        SiteMapParser parser = new SiteMapParser(sitemapStrict, sitemapPartial);
         boolean sitemapStrictNamespace = Boolean.valueOf(System.getProperty("sitemap.strictNamespace"));
-        parser.setStrictNamespace(sitemapStrictNamespace);
         boolean sitemapLazyNamespace = Boolean.valueOf(System.getProperty("sitemap.lazyNamespace"));
-        if (sitemapLazyNamespace) {
-            parser.setStrictNamespace(true);
-            parser.addAcceptedNamespace(Namespace.SITEMAP_LEGACY);
-            parser.addAcceptedNamespace(Namespace.EMPTY);
-        }
-        if (test.enableSitemapExtensions) {
-            parser.enableExtensions();
-            parser.setStrictNamespace(true);
+        SiteMapParser parser;
+        if (test.streaming) {
+            parser = configureParser(new StreamingSiteMapParser(sitemapStrict, sitemapPartial), sitemapStrictNamespace,
+                    sitemapLazyNamespace, test.enableSitemapExtensions);
+        } else {
+            parser = createParser(sitemapStrict, sitemapPartial, sitemapStrictNamespace, sitemapLazyNamespace,
+                    test.enableSitemapExtensions);
         }
         LOG.info("Using {} (crawler-commons v{})", parser.getClass(), crawlercommons.CrawlerCommons.getVersion());
 
-        test.run(parser, args);
+        RunResults results = new RunResults(SiteMapPerformanceTest.class.getSimpleName(),
+                crawlercommons.CrawlerCommons.getVersion());
+        int warmup = RunResults.getWarmupRuns();
+        for (int i = 0; i < warmup + RunResults.getRepetitions(); i++) {
+            if (i > 0) {
+                test = new SiteMapPerformanceTest();
+            }
+            try {
+                test.run(parser, args);
+                if (i >= warmup) {
+                    results.add(test.counter.metrics());
+                }
+            } finally {
+                // release threads and file channels before the next run
+                test.close();
+            }
+        }
+        if (results.report(LOG)) {
+            System.exit(2);
+        }
     }
 
 }
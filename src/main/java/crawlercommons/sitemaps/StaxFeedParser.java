@@ -0,0 +1,240 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.sitemaps;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Date;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.rometools.rome.io.impl.DateParser;
+
+/**
+ * Streaming RSS/Atom feed parser: links and dates of feed items are extracted
+ * from StAX events and passed to a consumer item by item, without building a
+ * document tree. The character encoding is detected from the byte order mark
+ * or the XML declaration. The extraction follows the mapping of ROME's
+ * <code>SyndEntry</code>:
+ * <ul>
+ * <li>RSS: link, else guid; date: <code>dc:date</code>, else pubDate</li>
+ * <li>Atom: first alternate link, else id; date: updated, else published
+ * (Atom 0.3: modified, issued)</li>
+ * </ul>
+ */
+public class StaxFeedParser extends SiteMapParser {
+
+    private static Logger LOG = LoggerFactory.getLogger(StaxFeedParser.class);
+
+    private static final String NS_ATOM_10 = "http://www.w3.org/2005/Atom";
+    private static final String NS_ATOM_03 = "http://purl.org/atom/ns#";
+    private static final String NS_RSS_10 = "http://purl.org/rss/1.0/";
+    private static final String NS_DC = "http://purl.org/dc/elements/1.1/";
+
+    private static final ThreadLocal<XMLInputFactory> XML_INPUT_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
+
+    /** fields of the feed item currently parsed */
+    private static class Item {
+        String link;
+        String alternateLink;
+        String id;
+        String published;
+        String updated;
+        String dcDate;
+    }
+
+    @Override
+    public AbstractSiteMap parseSiteMap(byte[] content, URL url) throws UnknownFormatException {
+        SiteMap sitemap = new SiteMap(url);
+        sitemap.setType(parse(new ByteArrayInputStream(content), url, sitemap::addSiteMapUrl));
+        return sitemap;
+    }
+
+    /**
+     * Parse a feed and pass the URLs of the feed items to the consumer.
+     * 
+     * @return feed type: {@link AbstractSiteMap.SitemapType#RSS} or
+     *         {@link AbstractSiteMap.SitemapType#ATOM}
+     */
+    public AbstractSiteMap.SitemapType parse(InputStream in, URL url, Consumer<SiteMapURL> consumer) throws UnknownFormatException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.get().createXMLStreamReader(in);
+            while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+            }
+            if (!reader.isStartElement()) {
+                throw new UnknownFormatException("No root element found in " + url);
+            }
+            AbstractSiteMap.SitemapType type;
+            boolean atom;
+            String root = reader.getLocalName();
+            if (root.equals("rss") || root.equals("RDF")) {
+                type = AbstractSiteMap.SitemapType.RSS;
+                atom = false;
+            } else if (root.equals("feed")) {
+                type = AbstractSiteMap.SitemapType.ATOM;
+                atom = true;
+            } else {
+                throw new UnknownFormatException("Unknown feed root element <" + root + "> in " + url);
+            }
+            parseItems(reader, url, atom, consumer);
+            return type;
+        } catch (XMLStreamException e) {
+            String msg = "Failed to parse " + url + ": " + e.getMessage();
+            LOG.warn(msg);
+            throw new UnknownFormatException(msg);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void parseItems(XMLStreamReader reader, URL url, boolean atom, Consumer<SiteMapURL> consumer) throws XMLStreamException {
+        int depth = 1;
+        int itemDepth = -1;
+        Item item = null;
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                if (depth == itemDepth) {
+                    emit(item, url, atom, consumer);
+                    item = null;
+                    itemDepth = -1;
+                }
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            depth++;
+            String name = reader.getLocalName();
+            if (item == null) {
+                if ((!atom && name.equals("item")) || (atom && name.equals("entry"))) {
+                    item = new Item();
+                    itemDepth = depth;
+                }
+                continue;
+            }
+            if (depth != itemDepth + 1) {
+                continue;
+            }
+            String ns = reader.getNamespaceURI();
+            if (ns == null) {
+                ns = "";
+            }
+            if (NS_DC.equals(ns)) {
+                if (name.equals("date") && item.dcDate == null) {
+                    item.dcDate = readText(reader);
+                    depth--;
+                }
+                continue;
+            }
+            if (atom ? !(ns.equals(NS_ATOM_10) || ns.equals(NS_ATOM_03)) : !(ns.isEmpty() || ns.equals(NS_RSS_10))) {
+                continue;
+            }
+            String text = null;
+            switch (name) {
+                case "link":
+                    if (atom) {
+                        String rel = reader.getAttributeValue(null, "rel");
+                        if ((rel == null || rel.equals("alternate")) && item.alternateLink == null) {
+                            item.alternateLink = reader.getAttributeValue(null, "href");
+                        }
+                    } else if (item.link == null) {
+                        item.link = text = readText(reader);
+                    }
+                    break;
+                case "guid":
+                case "id":
+                    if (item.id == null) {
+                        item.id = text = readText(reader);
+                    }
+                    break;
+                case "pubDate":
+                case "published":
+                case "issued":
+                    if (item.published == null) {
+                        item.published = text = readText(reader);
+                    }
+                    break;
+                case "updated":
+                case "modified":
+                    if (item.updated == null) {
+                        item.updated = text = readText(reader);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (text != null) {
+                // readText consumed the end element
+                depth--;
+            }
+        }
+    }
+
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        return reader.getElementText().trim();
+    }
+
+    private void emit(Item item, URL url, boolean atom, Consumer<SiteMapURL> consumer) {
+        String target = atom ? item.alternateLink : item.link;
+        if (target == null || target.trim().isEmpty()) {
+            target = item.id;
+            if (target == null || target.trim().isEmpty()) {
+                return;
+            }
+        }
+        URL tUrl;
+        try {
+            tUrl = new URL(url, target.trim());
+        } catch (MalformedURLException e) {
+            LOG.error("Invalid link {}: {}", target, e);
+            return;
+        }
+        String dateString = atom ? (item.updated != null ? item.updated : item.published)
+                        : (item.dcDate != null ? item.dcDate : item.published);
+        Date date = null;
+        if (dateString != null) {
+            date = DateParser.parseDate(dateString, Locale.US);
+        }
+        consumer.accept(new SiteMapURL(tUrl, date, null, SiteMapURL.DEFAULT_PRIORITY, true));
+    }
+
+}
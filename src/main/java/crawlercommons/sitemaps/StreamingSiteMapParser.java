@@ -0,0 +1,324 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.sitemaps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import crawlercommons.mimetypes.MimeTypeDetector;
+import crawlercommons.sitemaps.AbstractSiteMap.SitemapType;
+import crawlercommons.sitemaps.sax.DelegatorHandler;
+
+/**
+ * Sitemap parser consuming the sitemap from a stream and passing the URLs to a
+ * consumer one by one. Neither the payload nor the list of URLs is held in
+ * memory. URLs are checked in the same way as by {@link SiteMapParser} before
+ * passing them to the consumer. Only the URL (the <code>loc</code> element) is
+ * passed, last modification date, priority and extension attributes are not.
+ *
+ * XML sitemaps are parsed by the SAX handlers of {@link SiteMapParser}, the
+ * URL filter of the handlers diverts every URL to the consumer. Plain text
+ * sitemaps are read line by line.
+ *
+ * Sitemap indexes and RSS and Atom feeds are not streamed: the feed handlers
+ * apply the URL filter to every link element, not only to the links of
+ * completed feed items, and indexes hold few URLs. They are parsed into a
+ * sitemap (index) and the URLs are passed to the consumer after parsing.
+ */
+public class StreamingSiteMapParser extends SiteMapParser {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StreamingSiteMapParser.class);
+
+    /**
+     * Returned by the URL filter for consumed URLs: a valid URL which is never
+     * below the base URL of the sitemap, so that the strict handler drops it
+     * and resets its state. Returning null (filtered) would leave the URL in
+     * the state of the XML handler, and it would be passed to the filter again
+     * when the next <code>url</code> element starts, an invalid URL would cost
+     * an exception per URL.
+     */
+    private static final String CONSUMED = "http://consumed.invalid/";
+
+    /** max. number of lines of a text sitemap, as in {@link SiteMapParser} */
+    private static final int MAX_TEXT_LINES = 50000;
+
+    /** number of bytes inspected to find the root element of XML documents */
+    private static final int ROOT_ELEMENT_MAX_SKIP = 8192;
+
+    /** consumer and base URL of the sitemap currently parsed by a thread */
+    private static class Sink {
+        final Consumer<SiteMapURL> consumer;
+        final String baseUrl;
+
+        Sink(Consumer<SiteMapURL> consumer, URL url) {
+            this.consumer = consumer;
+            this.baseUrl = new SiteMap(url).getBaseUrl();
+        }
+    }
+
+    private final ThreadLocal<Sink> sink = new ThreadLocal<>();
+    private final MimeTypeDetector mimeTypeDetector = new MimeTypeDetector();
+    private Function<String,String> filter = Function.identity();
+    /** copies of private configuration of {@link SiteMapParser} */
+    private final boolean allowPartial;
+    private boolean allowDocTypeDefinitions = false;
+
+    public StreamingSiteMapParser(boolean strict, boolean allowPartial) {
+        super(strict, allowPartial);
+        this.allowPartial = allowPartial;
+        super.setURLFilter(this::consume);
+    }
+
+    @Override
+    public void setURLFilter(Function<String,String> filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void setAllowDocTypeDefinitions(boolean allowDocTypeDefinitions) {
+        super.setAllowDocTypeDefinitions(allowDocTypeDefinitions);
+        this.allowDocTypeDefinitions = allowDocTypeDefinitions;
+    }
+
+    private String consume(String url) {
+        Sink s = sink.get();
+        if (s == null) {
+            return filter.apply(url);
+        }
+        accept(s, url);
+        return CONSUMED;
+    }
+
+    /** check a URL and pass it to the consumer */
+    private void accept(Sink s, String url) {
+        url = filter.apply(url);
+        if (url == null) {
+            return;
+        }
+        URL u;
+        try {
+            u = new URI(url).toURL();
+        } catch (URISyntaxException | MalformedURLException | IllegalArgumentException e) {
+            LOG.debug("Bad url: [{}]", url);
+            return;
+        }
+        boolean valid = urlIsValid(s.baseUrl, u.toString());
+        if (valid || !isStrict()) {
+            s.consumer.accept(new SiteMapURL(u, valid));
+        }
+    }
+
+    /**
+     * Parse a sitemap (XML, RSS/Atom feed or plain text, optionally gzipped)
+     * from a stream and pass the URLs to the consumer. For sitemap indexes, the
+     * URLs of the referenced sitemaps are passed. The format is detected from
+     * the leading bytes in the same way as by
+     * {@link SiteMapParser#parseSiteMap(byte[], URL)}.
+     * 
+     * @return the parsed sitemap, holding no URLs if streamed
+     */
+    public AbstractSiteMap parse(InputStream in, URL url, Consumer<SiteMapURL> consumer) throws UnknownFormatException, IOException {
+        in = new BufferedInputStream(in);
+        String mediaType = mimeTypeDetector.detect(in);
+        String embeddedType = null;
+        if (mediaType != null && mimeTypeDetector.isGzip(mediaType)) {
+            in = new BufferedInputStream(new GZIPInputStream(in));
+            embeddedType = mimeTypeDetector.detect(in);
+            if (embeddedType == null) {
+                throw new UnknownFormatException(
+                        String.format(Locale.ROOT, "Failed to detect embedded MediaType of gzipped sitemap '%s'", url));
+            }
+        }
+        String type = embeddedType != null ? embeddedType : mediaType;
+        if (type == null) {
+            throw new UnknownFormatException(String.format(Locale.ROOT, "Failed to detect MediaType of sitemap '%s'", url));
+        }
+        if (mimeTypeDetector.isXml(type)) {
+            if ("urlset".equals(rootElement(in))) {
+                return streamXml(url, new InputSource(in), new Sink(consumer, url));
+            }
+            // feed, sitemap index or root element not found
+            AbstractSiteMap sitemap = processXml(url, new InputSource(in));
+            if (sitemap.isIndex()) {
+                String baseUrl = new SiteMap(url).getBaseUrl();
+                for (AbstractSiteMap s : ((SiteMapIndex) sitemap).getSitemaps()) {
+                    consumer.accept(new SiteMapURL(s.getUrl(), urlIsValid(baseUrl, s.getUrl().toString())));
+                }
+            } else {
+                ((SiteMap) sitemap).getSiteMapUrls().forEach(consumer);
+            }
+            return sitemap;
+        } else if (mimeTypeDetector.isText(type)) {
+            return streamText(url, in, new Sink(consumer, url));
+        }
+        throw new UnknownFormatException(String.format(Locale.ROOT, "Can't parse a sitemap with MediaType '%s' from '%s'", type, url));
+    }
+
+    /**
+     * Parse a XML sitemap by the SAX handlers of {@link SiteMapParser},
+     * configured as by {@link SiteMapParser#processXml(URL, InputSource)}. The
+     * handlers are strict, so that the URL returned by the filter for consumed
+     * URLs is dropped, strictness is checked by the filter.
+     */
+    private AbstractSiteMap streamXml(URL url, InputSource is, Sink s) throws UnknownFormatException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setValidating(false);
+        factory.setXIncludeAware(false);
+        factory.setNamespaceAware(true);
+        try {
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+            if (!allowDocTypeDefinitions) {
+                factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to configure XML parser: " + e.toString());
+        }
+        DelegatorHandler handler = new DelegatorHandler(url, true);
+        handler.setStrictNamespace(isStrictNamespace());
+        if (isStrictNamespace()) {
+            handler.setAcceptedNamespaces(acceptedNamespaces);
+        }
+        handler.setExtensionNamespaces(extensionNamespaces);
+        handler.setURLFilter(this::consume);
+        sink.set(s);
+        try {
+            SAXParser saxParser = factory.newSAXParser();
+            saxParser.getXMLReader().setEntityResolver((publicId, systemId) -> new InputSource(new StringReader("")));
+            saxParser.parse(is, handler);
+            AbstractSiteMap sitemap = handler.getSiteMap();
+            if (sitemap == null) {
+                UnknownFormatException ufe = handler.getException();
+                throw ufe != null ? ufe : new UnknownFormatException("Unknown XML format for: " + url);
+            }
+            return sitemap;
+        } catch (IOException e) {
+            LOG.warn("Error parsing sitemap {}: {}", url, e.getMessage());
+            UnknownFormatException ufe = new UnknownFormatException("Failed to parse " + url);
+            ufe.initCause(e);
+            throw ufe;
+        } catch (SAXException e) {
+            LOG.warn("Error parsing sitemap {}: {}", url, e.getMessage());
+            AbstractSiteMap sitemap = handler.getSiteMap();
+            if (allowPartial && sitemap != null) {
+                LOG.warn("Processed broken/partial sitemap for '{}'", url);
+                sitemap.setProcessed(false);
+                return sitemap;
+            }
+            UnknownFormatException ufe = new UnknownFormatException("Failed to parse " + url);
+            ufe.initCause(e);
+            throw ufe;
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            sink.remove();
+        }
+    }
+
+    /**
+     * Read a text sitemap line by line, as
+     * {@link SiteMapParser#processText(URL, InputStream)} does
+     */
+    private SiteMap streamText(URL url, InputStream in, Sink s) throws IOException {
+        SiteMap sitemap = new SiteMap(url);
+        sitemap.setType(SitemapType.TEXT);
+        skipByteOrderMark(in);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        int i = 0;
+        while ((line = reader.readLine()) != null && ++i <= MAX_TEXT_LINES) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                accept(s, line);
+            }
+        }
+        sitemap.setProcessed(true);
+        return sitemap;
+    }
+
+    /** skip the UTF-8 byte order mark */
+    private static void skipByteOrderMark(InputStream in) throws IOException {
+        in.mark(3);
+        byte[] bom = new byte[3];
+        int n = in.readNBytes(bom, 0, 3);
+        if (n < 3 || (bom[0] & 0xff) != 0xef || (bom[1] & 0xff) != 0xbb || (bom[2] & 0xff) != 0xbf) {
+            in.reset();
+        }
+    }
+
+    /**
+     * Find the local name of the root element of an XML document. Processing
+     * instructions, comments and the document type declaration before the root
+     * element are skipped.
+     * 
+     * @return local name of the root element or null if not found within
+     *         the first bytes
+     */
+    private static String rootElement(InputStream in) throws IOException {
+        in.mark(ROOT_ELEMENT_MAX_SKIP);
+        try {
+            byte[] buf = new byte[ROOT_ELEMENT_MAX_SKIP];
+            int n = in.readNBytes(buf, 0, buf.length);
+            String head = new String(buf, 0, n, StandardCharsets.ISO_8859_1);
+            int pos = 0;
+            while ((pos = head.indexOf('<', pos)) >= 0 && pos + 1 < head.length()) {
+                if (head.startsWith("<!--", pos)) {
+                    pos = head.indexOf("-->", pos);
+                } else if (head.charAt(pos + 1) == '?' || head.charAt(pos + 1) == '!') {
+                    pos = head.indexOf('>', pos);
+                } else {
+                    int end = pos + 1;
+                    while (end < head.length() && " \t\r\n/>".indexOf(head.charAt(end)) < 0) {
+                        end++;
+                    }
+                    String name = head.substring(pos + 1, end);
+                    return name.substring(name.indexOf(':') + 1);
+                }
+                if (pos < 0) {
+                    break;
+                }
+            }
+            return null;
+        } finally {
+            in.reset();
+        }
+    }
+
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the bytes allocated by the current thread, using the
+ * HotSpot-specific {@link com.sun.management.ThreadMXBean}. If thread
+ * allocation accounting is not supported by the JVM, all measurements return
+ * -1.
+ */
+public class AllocationMeter {
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+
+    static {
+        com.sun.management.ThreadMXBean bean = null;
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean) {
+            bean = (com.sun.management.ThreadMXBean) threadBean;
+            if (bean.isThreadAllocatedMemorySupported()) {
+                bean.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                bean = null;
+            }
+        }
+        THREAD_BEAN = bean;
+    }
+
+    private AllocationMeter() {
+    }
+
+    public static boolean isSupported() {
+        return THREAD_BEAN != null;
+    }
+
+    /** @return bytes allocated so far by the current thread, or -1 if not supported */
+    public static long allocatedBytes() {
+        if (THREAD_BEAN == null) {
+            return -1;
+        }
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * @param start
+     *            value returned by {@link #allocatedBytes()} before
+     * @return bytes allocated by the current thread since start, or -1 if not
+     *         supported
+     */
+    public static long allocatedSince(long start) {
+        if (start < 0) {
+            return -1;
+        }
+        return allocatedBytes() - start;
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Budget of bytes in flight, e.g. payloads read but not yet processed.
+ * {@link #acquire(long)} blocks while the budget is exhausted. A single
+ * request exceeding the budget is granted if nothing else is in flight, so
+ * that it cannot block forever.
+ */
+public class ByteBudget {
+
+    private final long capacity;
+    private long used;
+    private long peak;
+
+    /** number of times and time in nanoseconds {@link #acquire(long)} was blocked */
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+
+    public ByteBudget(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /** Acquire bytes, blocking until enough bytes are released. */
+    public synchronized void acquire(long bytes) throws InterruptedException {
+        if (used > 0 && used + bytes > capacity) {
+            long start = System.nanoTime();
+            try {
+                while (used > 0 && used + bytes > capacity) {
+                    wait();
+                }
+            } finally {
+                recordBlocked(System.nanoTime() - start);
+            }
+        }
+        used += bytes;
+        peak = Math.max(peak, used);
+    }
+
+    public synchronized void release(long bytes) {
+        used -= bytes;
+        notifyAll();
+    }
+
+    /** Record time spent waiting for resources other than the budget. */
+    public void recordBlocked(long nanos) {
+        blocked.increment();
+        blockedNanos.add(nanos);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /** @return bytes currently in flight */
+    public synchronized long getUsed() {
+        return used;
+    }
+
+    /** @return max. bytes in flight */
+    public synchronized long getPeak() {
+        return peak;
+    }
+
+    public long getBlocked() {
+        return blocked.sum();
+    }
+
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size bit set which allows to set bits concurrently without locking.
+ */
+public class ConcurrentBitSet {
+
+    private final AtomicLongArray words;
+    private final int size;
+
+    public ConcurrentBitSet(int size) {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int index) {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Set the bit at index.
+     *
+     * @return true if the bit was not set before
+     */
+    public boolean set(int index) {
+        int i = index >>> 6;
+        long mask = 1L << index;
+        while (true) {
+            long word = words.get(i);
+            if ((word & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(i, word, word | mask)) {
+                return true;
+            }
+        }
+    }
+
+    public int cardinality() {
+        int n = 0;
+        for (int i = 0; i < words.length(); i++) {
+            n += Long.bitCount(words.get(i));
+        }
+        return n;
+    }
+
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+/**
+ * Set of non-zero <code>long</code> keys (e.g., {@link Fingerprint}s) held in
+ * primitive arrays: 8 bytes per slot, at a load factor of 0.7 about 11-23
+ * bytes per key, compared to more than 100 bytes per URL held as
+ * <code>String</code> in a <code>HashSet</code>. The keys are distributed over
+ * stripes by their high bits, every stripe is an open-addressing hash table
+ * with its own lock. Stripes are resized one at a time, which keeps the
+ * transient memory needed for resizing small.
+ */
+public class ConcurrentLongHashSet {
+
+    private static final float LOAD_FACTOR = 0.7f;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    private static class Stripe {
+        long[] keys;
+        int size = 0;
+
+        Stripe(int capacity) {
+            keys = new long[capacity];
+        }
+
+        private int slot(long key) {
+            int mask = keys.length - 1;
+            int i = (int) key & mask;
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        synchronized boolean add(long key) {
+            int i = slot(key);
+            if (keys[i] != 0) {
+                return false;
+            }
+            keys[i] = key;
+            if (++size > LOAD_FACTOR * keys.length) {
+                long[] oldKeys = keys;
+                keys = new long[2 * oldKeys.length];
+                for (long k : oldKeys) {
+                    if (k != 0) {
+                        keys[slot(k)] = k;
+                    }
+                }
+            }
+            return true;
+        }
+
+        synchronized boolean contains(long key) {
+            return keys[slot(key)] != 0;
+        }
+    }
+
+    public ConcurrentLongHashSet() {
+        this(64, 1024);
+    }
+
+    /**
+     * @param numStripes
+     *            number of stripes, rounded up to a power of two
+     * @param expectedSize
+     *            expected number of keys
+     */
+    public ConcurrentLongHashSet(int numStripes, long expectedSize) {
+        int n = Integer.highestOneBit(Math.max(numStripes, 2) - 1) << 1;
+        stripes = new Stripe[n];
+        stripeShift = 64 - Integer.numberOfTrailingZeros(n);
+        long perStripe = (long) (expectedSize / n / LOAD_FACTOR);
+        int capacity = Integer.highestOneBit((int) Math.min(Math.max(perStripe, 8), 1 << 30) - 1) << 1;
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /** the high bits select the stripe, the low bits the slot within the stripe */
+    private Stripe stripe(long key) {
+        return stripes[(int) (key >>> stripeShift)];
+    }
+
+    /**
+     * Add a key.
+     *
+     * @return true if the key was not contained before
+     */
+    public boolean add(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 not allowed");
+        }
+        return stripe(key).add(key);
+    }
+
+    public boolean contains(long key) {
+        return key != 0 && stripe(key).contains(key);
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                size += s.size;
+            }
+        }
+        return size;
+    }
+
+    /** @return heap size of the arrays in bytes */
+    public long estimateMemory() {
+        long bytes = 16 + 4L * stripes.length;
+        for (Stripe s : stripes) {
+            synchronized (s) {
+                bytes += 16 + 16 + 8L * s.keys.length;
+            }
+        }
+        return bytes;
+    }
+
+}
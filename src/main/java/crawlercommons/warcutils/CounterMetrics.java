@@ -0,0 +1,194 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes counters as attributes of a platform MBean, so that long-running
+ * tests can be watched live, e.g. using jconsole. The counters are read on
+ * every access. For selected counters the rate per second is published,
+ * averaged over a rolling window of samples taken every second.
+ */
+public class CounterMetrics implements DynamicMBean, AutoCloseable {
+
+    private static Logger LOG = LoggerFactory.getLogger(CounterMetrics.class);
+
+    public static final String RATE_SUFFIX = "PerSecond";
+
+    private final ObjectName name;
+    private final Supplier<Map<String,Number>> counters;
+    private final String[] rateKeys;
+    /** ring buffer of samples of the rate counters, one sample per second */
+    private final long[][] samples;
+    private final long[] sampleTimes;
+    private int numSamples = 0;
+    private final ScheduledExecutorService sampler;
+
+    /**
+     * @param name
+     *            object name the MBean is registered with
+     * @param counters
+     *            supplies a snapshot of the counters
+     * @param rateKeys
+     *            keys of the counters the rates per second are published for
+     * @param window
+     *            length of the rolling window in seconds
+     */
+    public CounterMetrics(String name, Supplier<Map<String,Number>> counters, String[] rateKeys, int window)
+            throws JMException {
+        this.name = new ObjectName(name);
+        this.counters = counters;
+        this.rateKeys = rateKeys;
+        this.samples = new long[Math.max(window, 1) + 1][rateKeys.length];
+        this.sampleTimes = new long[samples.length];
+        sampler = Executors.newSingleThreadScheduledExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "metrics-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sample();
+        sampler.scheduleAtFixedRate(this::sample, 1, 1, TimeUnit.SECONDS);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, this.name);
+        LOG.info("Registered MBean {}", name);
+    }
+
+    private void sample() {
+        Map<String,Number> snapshot = counters.get();
+        long now = System.nanoTime();
+        synchronized (samples) {
+            int i = numSamples % samples.length;
+            for (int k = 0; k < rateKeys.length; k++) {
+                Number n = snapshot.get(rateKeys[k]);
+                samples[i][k] = n == null ? 0 : n.longValue();
+            }
+            sampleTimes[i] = now;
+            numSamples++;
+        }
+    }
+
+    /** @return rates per second over the rolling window */
+    private Map<String,Number> rates() {
+        Map<String,Number> rates = new LinkedHashMap<>();
+        synchronized (samples) {
+            int last = (numSamples - 1) % samples.length;
+            int first = numSamples <= samples.length ? 0 : numSamples % samples.length;
+            long nanos = sampleTimes[last] - sampleTimes[first];
+            for (int k = 0; k < rateKeys.length; k++) {
+                double rate = nanos == 0 ? 0.0 : ((samples[last][k] - samples[first][k]) * 1000000000.0 / nanos);
+                rates.put(rateKeys[k] + RATE_SUFFIX, rate);
+            }
+        }
+        return rates;
+    }
+
+    private Map<String,Number> attributes() {
+        Map<String,Number> attributes = new LinkedHashMap<>(counters.get());
+        attributes.putAll(rates());
+        return attributes;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String,Number> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String attribute : names) {
+            if (attributes.containsKey(attribute)) {
+                list.add(new Attribute(attribute, attributes.get(attribute)));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Read-only attribute: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException, ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    /**
+     * The attributes are listed from a snapshot of the counters, counters
+     * added later (e.g., per document type) appear once the MBean info is
+     * requested again.
+     */
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        for (Map.Entry<String,Number> e : attributes().entrySet()) {
+            infos.add(new MBeanAttributeInfo(e.getKey(), e.getValue().getClass().getName(), e.getKey(), true, false,
+                    false));
+        }
+        return new MBeanInfo(getClass().getName(), "Counters of " + name, infos.toArray(new MBeanAttributeInfo[0]),
+                null, null, null);
+    }
+
+    /** Stop sampling and unregister the MBean. */
+    @Override
+    public void close() {
+        sampler.shutdown();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOG.warn("Failed to unregister MBean {}", name, e);
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+/**
+ * Measures the live heap, i.e. the heap used after a full garbage collection.
+ * Every measurement triggers a full GC, measurements are therefore slow and
+ * only meaningful if no other threads allocate concurrently.
+ */
+public class HeapMeter {
+
+    private static final MemoryMXBean MEMORY_BEAN = ManagementFactory.getMemoryMXBean();
+
+    private long base;
+    private long peak;
+    /** time spent measuring */
+    private long nanos;
+    /** number of calls of {@link #sample(int)} */
+    private long calls;
+
+    /** Start a new measurement, recording the live heap as base line. */
+    public void start() {
+        base = liveHeap();
+        peak = 0;
+        nanos = 0;
+        calls = 0;
+    }
+
+    /** Sample the live heap and update the peak. */
+    public void sample() {
+        long start = System.nanoTime();
+        peak = Math.max(peak, liveHeap() - base);
+        nanos += System.nanoTime() - start;
+    }
+
+    /** Sample the live heap at the first and every n-th call. */
+    public void sample(int interval) {
+        if ((calls++ % interval) == 0) {
+            sample();
+        }
+    }
+
+    /** @return max. live heap sampled since {@link #start()} above the base line */
+    public long getPeak() {
+        return peak;
+    }
+
+    /** @return nanoseconds spent in {@link #sample()} since {@link #start()} */
+    public long getNanos() {
+        return nanos;
+    }
+
+    /** @return bytes used on the heap after a full GC */
+    public static long liveHeap() {
+        System.gc();
+        return MEMORY_BEAN.getHeapMemoryUsage().getUsed();
+    }
+
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * HyperLogLog cardinality estimator (Flajolet et al., with the small-range
+ * correction by linear counting) over 64-bit hashes, e.g.
+ * {@link Fingerprint}s. Memory is fixed, 2<sup>p</sup> registers, independent
+ * of the number of distinct elements. The standard error of the estimate is
+ * 1.04 / sqrt(2<sup>p</sup>), e.g. 0.8% for p = 14. Registers are updated
+ * without locking.
+ */
+public class HyperLogLog {
+
+    private final int p;
+    private final int m;
+    private final AtomicIntegerArray registers;
+
+    /**
+     * @param precision
+     *            number of bits of the hash used to select the register
+     *            (4-18)
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 18) {
+            throw new IllegalArgumentException("Precision must be in range 4-18: " + precision);
+        }
+        p = precision;
+        m = 1 << p;
+        registers = new AtomicIntegerArray(m);
+    }
+
+    /** Add a well-mixed 64-bit hash */
+    public void add(long hash) {
+        int i = (int) (hash >>> (64 - p));
+        // position of the first 1-bit in the remaining bits, a sentinel bit limits the rank
+        int rank = Long.numberOfLeadingZeros((hash << p) | (1L << (p - 1))) + 1;
+        int current;
+        while (rank > (current = registers.get(i))) {
+            if (registers.compareAndSet(i, current, rank)) {
+                return;
+            }
+        }
+    }
+
+    /** @return estimated number of distinct hashes added */
+    public long estimate() {
+        double sum = 0.0;
+        int zeros = 0;
+        for (int i = 0; i < m; i++) {
+            int r = registers.get(i);
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1.0 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // small range: linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /** @return standard error of the estimate relative to the cardinality */
+    public double getStandardError() {
+        return 1.04 / Math.sqrt(m);
+    }
+
+    /** @return heap size of the registers in bytes */
+    public long estimateMemory() {
+        return 16 + 4L * m;
+    }
+
+}
@@ -0,0 +1,204 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compact in-memory index of WARC response records: URL &rarr; (WARC file ID,
+ * offset, HTTP status, content-type). All values are held in primitive arrays
+ * indexed by a record ID which reflects the insertion order. URLs are stored
+ * as UTF-8 byte arrays and looked up via an open-addressing hash table.
+ */
+public class InMemoryRecordIndex implements RecordIndex {
+
+    private static Logger LOG = LoggerFactory.getLogger(InMemoryRecordIndex.class);
+
+    /** bits used for the record offset, the remaining bits hold the WARC file ID */
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+    private static final int MAX_WARC_FILE_ID = (1 << (64 - OFFSET_BITS)) - 1;
+
+    private byte[][] urls;
+    /** packed WARC file ID and offset */
+    private long[] locations;
+    /** packed HTTP status (upper 16 bits) and content-type ID (lower 16 bits) */
+    private int[] infos;
+    private int size = 0;
+
+    /** hash table, values are record ID + 1, 0 marks an empty slot */
+    private int[] table;
+
+    private List<String> contentTypes = new ArrayList<>();
+    private Map<String,Integer> contentTypeIds = new HashMap<>();
+    private boolean contentTypesExhausted = false;
+
+    public InMemoryRecordIndex() {
+        this(1024);
+    }
+
+    public InMemoryRecordIndex(int initialCapacity) {
+        urls = new byte[initialCapacity][];
+        locations = new long[initialCapacity];
+        infos = new int[initialCapacity];
+        table = new int[Integer.highestOneBit(Math.max(initialCapacity, 8)) << 2];
+        contentTypes.add(null); // ID 0: no content-type
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Add a record to the index. If the URL is already indexed, the record
+     * replaces the previous one.
+     *
+     * @return record ID
+     */
+    public int put(String url, int warcFileId, long offset, int status, String contentType) {
+        if (warcFileId > MAX_WARC_FILE_ID || offset > OFFSET_MASK) {
+            throw new IllegalArgumentException("WARC file ID or offset out of range: " + warcFileId + ", " + offset);
+        }
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        int slot = findSlot(key);
+        int id;
+        if (table[slot] != 0) {
+            id = table[slot] - 1;
+        } else {
+            if (size == urls.length) {
+                grow();
+            }
+            id = size++;
+            urls[id] = key;
+            table[slot] = id + 1;
+            if (4 * size > 3 * table.length) {
+                rehash();
+            }
+        }
+        locations[id] = ((long) warcFileId << OFFSET_BITS) | offset;
+        infos[id] = ((status & 0xffff) << 16) | contentTypeId(contentType);
+        return id;
+    }
+
+    @Override
+    public int getId(String url) {
+        int slot = findSlot(url.getBytes(StandardCharsets.UTF_8));
+        return table[slot] - 1;
+    }
+
+    @Override
+    public String getUrl(int id) {
+        return new String(urls[id], StandardCharsets.UTF_8);
+    }
+
+    byte[] getUrlBytes(int id) {
+        return urls[id];
+    }
+
+    @Override
+    public int getWarcFileId(int id) {
+        return (int) (locations[id] >>> OFFSET_BITS);
+    }
+
+    @Override
+    public long getOffset(int id) {
+        return locations[id] & OFFSET_MASK;
+    }
+
+    @Override
+    public int getStatus(int id) {
+        return (short) (infos[id] >>> 16);
+    }
+
+    @Override
+    public String getContentType(int id) {
+        return contentTypes.get(infos[id] & 0xffff);
+    }
+
+    @Override
+    public long estimateMemory() {
+        long bytes = 8L * urls.length + 8L * locations.length + 4L * infos.length + 4L * table.length;
+        for (int i = 0; i < size; i++) {
+            bytes += 16 + urls[i].length;
+        }
+        return bytes;
+    }
+
+    private int contentTypeId(String contentType) {
+        if (contentType == null) {
+            return 0;
+        }
+        Integer id = contentTypeIds.get(contentType);
+        if (id == null) {
+            if (contentTypes.size() > 0xffff) {
+                // dictionary exhausted, should never happen for real-world data
+                if (!contentTypesExhausted) {
+                    LOG.warn("More than {} content types, not indexing content type {} and following", 0xffff, contentType);
+                    contentTypesExhausted = true;
+                }
+                return 0;
+            }
+            id = contentTypes.size();
+            contentTypes.add(contentType);
+            contentTypeIds.put(contentType, id);
+        }
+        return id;
+    }
+
+    private static int hash(byte[] key) {
+        int h = Arrays.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private int findSlot(byte[] key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0 && !Arrays.equals(urls[table[slot] - 1], key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int capacity = urls.length + (urls.length >> 1) + 1;
+        urls = Arrays.copyOf(urls, capacity);
+        locations = Arrays.copyOf(locations, capacity);
+        infos = Arrays.copyOf(infos, capacity);
+    }
+
+    private void rehash() {
+        table = new int[table.length << 1];
+        int mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hash(urls[id]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+}
@@ -0,0 +1,285 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Record index of a single WARC file, persisted in a sidecar file
+ * (<code>&lt;warc-file&gt;.idx</code>) and memory-mapped for lookups.
+ *
+ * Layout of the sidecar file:
+ * <ul>
+ * <li>header: magic, version, size and modification time of the WARC file,
+ * number of records, content-type dictionary</li>
+ * <li>record table in WARC order, {@value #ENTRY_SIZE} bytes per record: URL
+ * position and length, HTTP status, content-type ID, record offset</li>
+ * <li>record IDs sorted by URL (unsigned byte order), used for binary
+ * search</li>
+ * <li>URLs (UTF-8)</li>
+ * </ul>
+ */
+public class MappedRecordIndex implements RecordIndex {
+
+    private static Logger LOG = LoggerFactory.getLogger(MappedRecordIndex.class);
+
+    public static final String SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x57494458; // "WIDX"
+    private static final int VERSION = 1;
+    private static final int ENTRY_SIZE = 24;
+    /** max. size of a sidecar file, mapped into a single buffer */
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+    /** max. number of content types, including "none", stored as 16-bit IDs */
+    static final int MAX_CONTENT_TYPES = 0x10000;
+
+    private final MappedByteBuffer buf;
+    private final int warcFileId;
+    private final int size;
+    private final int entriesStart;
+    private final int sortedStart;
+    private final int urlsStart;
+    private final String[] contentTypes;
+
+    private MappedRecordIndex(MappedByteBuffer buf, int warcFileId) {
+        this.buf = buf;
+        this.warcFileId = warcFileId;
+        buf.position(24);
+        size = buf.getInt();
+        contentTypes = new String[buf.getInt()];
+        for (int i = 0; i < contentTypes.length; i++) {
+            byte[] ct = new byte[buf.getShort() & 0xffff];
+            buf.get(ct);
+            contentTypes[i] = ct.length == 0 ? null : new String(ct, StandardCharsets.UTF_8);
+        }
+        entriesStart = buf.position();
+        sortedStart = entriesStart + ENTRY_SIZE * size;
+        urlsStart = sortedStart + 4 * size;
+    }
+
+    public static Path getSidecarPath(String warcPath) {
+        return Paths.get(warcPath + SUFFIX);
+    }
+
+    /**
+     * Open and map the sidecar index of a WARC file.
+     *
+     * @return the index or null if there is no sidecar index or it is outdated
+     */
+    public static MappedRecordIndex open(String warcPath, int warcFileId) throws IOException {
+        Path warc = Paths.get(warcPath);
+        Path sidecar = getSidecarPath(warcPath);
+        if (!Files.exists(sidecar)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(sidecar)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Sidecar index too large to be mapped: " + sidecar);
+            }
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                LOG.warn("Ignoring sidecar index {}: unknown format", sidecar);
+                return null;
+            }
+            if (buf.getLong() != Files.size(warc) || buf.getLong() != Files.getLastModifiedTime(warc).toMillis()) {
+                LOG.warn("Ignoring outdated sidecar index {}", sidecar);
+                return null;
+            }
+            return new MappedRecordIndex(buf, warcFileId);
+        }
+    }
+
+    /**
+     * Write the sidecar index of a WARC file. The sidecar file is not written
+     * if it would exceed {@value #MAX_SIZE} bytes (it could not be mapped) or
+     * hold more than {@value #MAX_CONTENT_TYPES} content types.
+     *
+     * @param index
+     *            index holding the records of the WARC file
+     * @param warcFileId
+     *            ID of the WARC file, records of other WARC files are skipped
+     * @return true if the sidecar file was written, false if the records
+     *         exceed the limits of the sidecar format
+     */
+    public static boolean write(String warcPath, InMemoryRecordIndex index, int warcFileId) throws IOException {
+        Path warc = Paths.get(warcPath);
+        Path sidecar = getSidecarPath(warcPath);
+        List<Integer> ids = new ArrayList<>();
+        List<String> contentTypes = new ArrayList<>();
+        Map<String,Integer> contentTypeIds = new HashMap<>();
+        contentTypes.add(null);
+        long sidecarSize = 32 + 2; // header and the empty content type
+        for (int id = 0; id < index.size(); id++) {
+            if (index.getWarcFileId(id) == warcFileId) {
+                ids.add(id);
+                sidecarSize += ENTRY_SIZE + 4 + index.getUrlBytes(id).length;
+                String ct = index.getContentType(id);
+                if (ct != null && !contentTypeIds.containsKey(ct)) {
+                    contentTypeIds.put(ct, contentTypes.size());
+                    contentTypes.add(ct);
+                    sidecarSize += 2 + Math.min(ct.getBytes(StandardCharsets.UTF_8).length, 0xffff);
+                }
+            }
+        }
+        if (contentTypes.size() > MAX_CONTENT_TYPES) {
+            LOG.warn("Not writing sidecar index {}: {} content types exceed the limit of {}", sidecar,
+                    contentTypes.size() - 1, MAX_CONTENT_TYPES - 1);
+            return false;
+        }
+        if (sidecarSize > MAX_SIZE) {
+            LOG.warn("Not writing sidecar index {}: {} bytes exceed the limit of {} bytes", sidecar, sidecarSize, MAX_SIZE);
+            return false;
+        }
+        // sort by WARC offset, the record ID in the sidecar is the position in this list
+        ids.sort((a, b) -> Long.compare(index.getOffset(a), index.getOffset(b)));
+        Integer[] sorted = new Integer[ids.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(index.getUrlBytes(ids.get(a)), index.getUrlBytes(ids.get(b))));
+
+        Path tmp = Paths.get(sidecar.toString() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(warc));
+            out.writeLong(Files.getLastModifiedTime(warc).toMillis());
+            out.writeInt(ids.size());
+            out.writeInt(contentTypes.size());
+            for (String ct : contentTypes) {
+                byte[] b = ct == null ? new byte[0] : ct.getBytes(StandardCharsets.UTF_8);
+                if (b.length > 0xffff) {
+                    b = Arrays.copyOf(b, 0xffff);
+                }
+                out.writeShort(b.length);
+                out.write(b);
+            }
+            long urlPos = 0;
+            for (int id : ids) {
+                String ct = index.getContentType(id);
+                int urlLen = index.getUrlBytes(id).length;
+                out.writeLong(urlPos);
+                out.writeInt(urlLen);
+                out.writeShort(index.getStatus(id));
+                out.writeShort(ct == null ? 0 : contentTypeIds.get(ct));
+                out.writeLong(index.getOffset(id));
+                urlPos += urlLen;
+            }
+            for (int i : sorted) {
+                out.writeInt(i);
+            }
+            for (int id : ids) {
+                out.write(index.getUrlBytes(id));
+            }
+        }
+        Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("Wrote sidecar index {} ({} records)", sidecar, ids.size());
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getId(String url) {
+        byte[] key = url.getBytes(StandardCharsets.UTF_8);
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = buf.getInt(sortedStart + 4 * mid);
+            int cmp = compareUrl(id, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private int compareUrl(int id, byte[] key) {
+        int entry = entriesStart + ENTRY_SIZE * id;
+        int pos = urlsStart + (int) buf.getLong(entry);
+        int len = buf.getInt(entry + 8);
+        int n = Math.min(len, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.compareUnsigned(buf.get(pos + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return len - key.length;
+    }
+
+    @Override
+    public String getUrl(int id) {
+        int entry = entriesStart + ENTRY_SIZE * id;
+        byte[] url = new byte[buf.getInt(entry + 8)];
+        ByteBuffer b = buf.duplicate();
+        b.position(urlsStart + (int) buf.getLong(entry));
+        b.get(url);
+        return new String(url, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int getWarcFileId(int id) {
+        return warcFileId;
+    }
+
+    @Override
+    public long getOffset(int id) {
+        return buf.getLong(entriesStart + ENTRY_SIZE * id + 16);
+    }
+
+    @Override
+    public int getStatus(int id) {
+        return buf.getShort(entriesStart + ENTRY_SIZE * id + 12);
+    }
+
+    @Override
+    public String getContentType(int id) {
+        return contentTypes[buf.getShort(entriesStart + ENTRY_SIZE * id + 14) & 0xffff];
+    }
+
+    @Override
+    public long estimateMemory() {
+        return 0; // memory-mapped, not held on the heap
+    }
+
+}
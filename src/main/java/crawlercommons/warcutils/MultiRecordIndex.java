@@ -0,0 +1,109 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Record index spanning the indexes of multiple WARC files. Record IDs are
+ * assigned consecutively over all WARC files. If a URL is contained in
+ * multiple WARC files, the record from the last WARC file is returned.
+ */
+public class MultiRecordIndex implements RecordIndex {
+
+    private List<RecordIndex> indexes = new ArrayList<>();
+    /** first record ID of every index */
+    private int[] bases = new int[0];
+    private int size = 0;
+
+    public void add(RecordIndex index) {
+        indexes.add(index);
+        bases = Arrays.copyOf(bases, indexes.size());
+        bases[bases.length - 1] = size;
+        size += index.size();
+    }
+
+    private int indexOf(int id) {
+        int i = Arrays.binarySearch(bases, id);
+        if (i < 0) {
+            i = -i - 2;
+        }
+        // skip empty indexes sharing the same base
+        while (i < (bases.length - 1) && bases[i + 1] == id) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getId(String url) {
+        for (int i = indexes.size() - 1; i >= 0; i--) {
+            int id = indexes.get(i).getId(url);
+            if (id >= 0) {
+                return bases[i] + id;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String getUrl(int id) {
+        int i = indexOf(id);
+        return indexes.get(i).getUrl(id - bases[i]);
+    }
+
+    @Override
+    public int getWarcFileId(int id) {
+        int i = indexOf(id);
+        return indexes.get(i).getWarcFileId(id - bases[i]);
+    }
+
+    @Override
+    public long getOffset(int id) {
+        int i = indexOf(id);
+        return indexes.get(i).getOffset(id - bases[i]);
+    }
+
+    @Override
+    public int getStatus(int id) {
+        int i = indexOf(id);
+        return indexes.get(i).getStatus(id - bases[i]);
+    }
+
+    @Override
+    public String getContentType(int id) {
+        int i = indexOf(id);
+        return indexes.get(i).getContentType(id - bases[i]);
+    }
+
+    @Override
+    public long estimateMemory() {
+        long bytes = 4L * bases.length;
+        for (RecordIndex index : indexes) {
+            bytes += index.estimateMemory();
+        }
+        return bytes;
+    }
+
+}
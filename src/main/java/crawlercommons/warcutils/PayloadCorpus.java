@@ -0,0 +1,365 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.netpreserve.jwarc.WarcDigest;
+import org.netpreserve.jwarc.WarcReader;
+import org.netpreserve.jwarc.WarcRecord;
+import org.netpreserve.jwarc.WarcResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Corpus of decoded payloads, exported once from WARC files and memory-mapped
+ * by later runs. Reading the corpus requires neither decompression of the WARC
+ * file nor decoding of the HTTP payload (chunked transfer encoding, content
+ * encoding), so that benchmarks measure only the parser. Payloads are handed
+ * out as read-only slices of the mapped file.
+ *
+ * Layout of the corpus file:
+ * <ul>
+ * <li>header: magic, version, number of records</li>
+ * <li>records: URL (UTF-8, int length-prefixed), HTTP status (short),
+ * content type and WARC payload digest (UTF-8, short length-prefixed, empty if
+ * missing), payload (int length-prefixed)</li>
+ * </ul>
+ * Files larger than 2 GiB are mapped in multiple segments.
+ */
+public class PayloadCorpus {
+
+    private static Logger LOG = LoggerFactory.getLogger(PayloadCorpus.class);
+
+    public static final String SUFFIX = ".corpus";
+
+    private static final int MAGIC = 0x57504c44; // "WPLD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final String path;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    /** segment and position of every record */
+    private final int[] segment;
+    private final int[] position;
+    private final int[] payloadPosition;
+    private final int[] payloadLength;
+    private long payloadBytes = 0;
+
+    private PayloadCorpus(String path) throws IOException {
+        this.path = path;
+        try (FileChannel channel = FileChannel.open(Paths.get(path))) {
+            long size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a payload corpus: " + path);
+            }
+            int n = header.getInt();
+            segment = new int[n];
+            position = new int[n];
+            payloadPosition = new int[n];
+            payloadLength = new int[n];
+            long start = HEADER_SIZE;
+            long segmentStart = start;
+            MappedByteBuffer seg = null;
+            for (int id = 0; id < n; id++) {
+                int end = seg == null ? -1 : scanRecord(seg, (int) (start - segmentStart), id);
+                if (end < 0) {
+                    // record does not fit into the current segment, map a new one starting with the record
+                    segmentStart = start;
+                    seg = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(size - segmentStart, MAX_SEGMENT_SIZE));
+                    segments.add(seg);
+                    end = scanRecord(seg, 0, id);
+                    if (end < 0) {
+                        throw new IOException("Truncated payload corpus " + path + " (record " + id + ")");
+                    }
+                }
+                segment[id] = segments.size() - 1;
+                payloadBytes += payloadLength[id];
+                start = segmentStart + end;
+            }
+        }
+    }
+
+    /**
+     * Locate the fields of the record at the given position of a segment.
+     * 
+     * @return the end position of the record or -1 if the record exceeds the
+     *         segment
+     */
+    private int scanRecord(ByteBuffer seg, int pos, int id) {
+        long p = pos;
+        long limit = seg.limit();
+        if (p + 4 > limit) {
+            return -1;
+        }
+        p += 4 + seg.getInt((int) p) + 2;
+        for (int i = 0; i < 2; i++) {
+            if (p + 2 > limit) {
+                return -1;
+            }
+            p += 2 + (seg.getShort((int) p) & 0xffff);
+        }
+        if (p + 4 > limit) {
+            return -1;
+        }
+        int len = seg.getInt((int) p);
+        p += 4;
+        if (p + len > limit) {
+            return -1;
+        }
+        position[id] = pos;
+        payloadPosition[id] = (int) p;
+        payloadLength[id] = len;
+        return (int) (p + len);
+    }
+
+    public static boolean isCorpus(String path) {
+        return path.endsWith(SUFFIX);
+    }
+
+    /** Open and map a payload corpus. */
+    public static PayloadCorpus open(String path) throws IOException {
+        PayloadCorpus corpus = new PayloadCorpus(path);
+        LOG.info("Mapped payload corpus {} ({} records, {} payload bytes)", path, corpus.size(), corpus.payloadBytes);
+        return corpus;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int size() {
+        return segment.length;
+    }
+
+    /** @return the sum of the payload lengths */
+    public long getPayloadBytes() {
+        return payloadBytes;
+    }
+
+    private ByteBuffer segment(int id) {
+        return segments.get(segment[id]);
+    }
+
+    private String getString(int id, int fieldPos, int len) {
+        byte[] b = new byte[len];
+        ByteBuffer buf = segment(id).duplicate();
+        buf.position(fieldPos);
+        buf.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    public String getUrl(int id) {
+        int pos = position[id];
+        return getString(id, pos + 4, segment(id).getInt(pos));
+    }
+
+    private int statusPosition(int id) {
+        int pos = position[id];
+        return pos + 4 + segment(id).getInt(pos);
+    }
+
+    public int getStatus(int id) {
+        return segment(id).getShort(statusPosition(id));
+    }
+
+    /** @return the HTTP Content-Type, null if missing */
+    public String getContentType(int id) {
+        int pos = statusPosition(id) + 2;
+        int len = segment(id).getShort(pos) & 0xffff;
+        return len == 0 ? null : getString(id, pos + 2, len);
+    }
+
+    /** @return the WARC payload digest, null if missing */
+    public String getPayloadDigest(int id) {
+        int pos = statusPosition(id) + 2;
+        pos += 2 + (segment(id).getShort(pos) & 0xffff);
+        int len = segment(id).getShort(pos) & 0xffff;
+        return len == 0 ? null : getString(id, pos + 2, len);
+    }
+
+    public int getPayloadLength(int id) {
+        return payloadLength[id];
+    }
+
+    /** @return the payload as read-only slice of the mapped corpus file (zero-copy) */
+    public ByteBuffer getPayload(int id) {
+        ByteBuffer buf = segment(id).duplicate();
+        buf.position(payloadPosition[id]);
+        buf.limit(payloadPosition[id] + payloadLength[id]);
+        return buf.slice().asReadOnlyBuffer();
+    }
+
+    /** @return the payload as stream reading from the mapped corpus file (zero-copy) */
+    public InputStream getPayloadStream(int id) {
+        return new ByteBufferInputStream(getPayload(id));
+    }
+
+    /** @return a copy of the payload, for parsers requiring a byte array */
+    public byte[] getContent(int id) {
+        byte[] content = new byte[payloadLength[id]];
+        getPayload(id).get(content);
+        return content;
+    }
+
+    /** Input stream reading from a byte buffer. */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer buf) {
+            this.buf = buf;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? (buf.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buf.remaining());
+            buf.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, buf.remaining()));
+            buf.position(buf.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return buf.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readlimit) {
+            buf.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buf.reset();
+        }
+    }
+
+    /**
+     * Export the decoded payloads of all WARC response records into a corpus
+     * file.
+     * 
+     * @return number of records written
+     */
+    public static int write(String corpusPath, String[] warcPaths) throws IOException {
+        Path corpus = Paths.get(corpusPath);
+        Path tmp = Paths.get(corpusPath + ".tmp");
+        int n = 0;
+        long bytes = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0); // number of records, updated when finished
+            for (String warcPath : warcPaths) {
+                try (WarcReader reader = new WarcReader(Paths.get(warcPath))) {
+                    for (WarcRecord record : reader) {
+                        if (!(record instanceof WarcResponse)) {
+                            continue;
+                        }
+                        WarcResponse response = (WarcResponse) record;
+                        byte[] url = response.target().getBytes(StandardCharsets.UTF_8);
+                        int status;
+                        String contentType;
+                        byte[] content;
+                        try {
+                            status = response.http().status();
+                            contentType = response.http().headers().first("Content-Type").orElse(null);
+                            content = WarcTestProcessor.getContent(response);
+                        } catch (IOException | IllegalArgumentException e) {
+                            LOG.warn("Failed to read WARC record {}: {}", response.target(), e);
+                            continue;
+                        }
+                        out.writeInt(url.length);
+                        out.write(url);
+                        out.writeShort(status);
+                        writeShortString(out, contentType);
+                        writeShortString(out, response.payloadDigest().map(WarcDigest::prefixedBase32).orElse(null));
+                        out.writeInt(content.length);
+                        out.write(content);
+                        n++;
+                        bytes += content.length;
+                    }
+                }
+                LOG.info("Exported {} records from {}", n, warcPath);
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(4).putInt(0, n);
+            channel.write(count, 8);
+        }
+        Files.move(tmp, corpus, StandardCopyOption.REPLACE_EXISTING);
+        LOG.info("Wrote payload corpus {} ({} records, {} payload bytes)", corpus, n, bytes);
+        return n;
+    }
+
+    private static void writeShortString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xffff) {
+            b = Arrays.copyOf(b, 0xffff);
+        }
+        out.writeShort(b.length);
+        out.write(b);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !isCorpus(args[0])) {
+            LOG.error("Usage:  PayloadCorpus <corpus-file>" + SUFFIX + " <WARC-file>...");
+            LOG.error("Export the decoded payloads of the WARC files into a corpus file.");
+            LOG.error("The corpus file can be passed instead of WARC files to the tests and benchmarks.");
+            System.exit(1);
+        }
+        write(args[0], Arrays.copyOfRange(args, 1, args.length));
+    }
+
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent per processing phase, from reading the WARC records to counting
+ * the parser output. Phases are timed by the thread executing them, with
+ * multiple worker threads the sum over all phases may exceed the wall time.
+ */
+public class PhaseTimes {
+
+    public enum Phase {
+        WARC_READ("WARC read (record headers, skipped records)"),
+        HTTP_HEADER("HTTP header parsing"),
+        PAYLOAD_READ("payload read (WARC inflation, HTTP chunking)"),
+        CONTENT_DECODING("content decoding and copying"),
+        PARSE("parse"),
+        POST_PROCESSING("post-processing");
+
+        public final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private final LongAdder[] nanos = new LongAdder[Phase.values().length];
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+    private final AtomicLong wallStart = new AtomicLong();
+
+    public PhaseTimes() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = new LongAdder();
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /** Start the wall clock, ignored if already started. */
+    public void start() {
+        wallStart.compareAndSet(0, System.nanoTime());
+    }
+
+    /** Reset all phase times and the wall clock, e.g., before a repeated run. */
+    public void reset() {
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i].reset();
+            counts[i].reset();
+        }
+        wallStart.set(0);
+    }
+
+    /** @return nanoseconds elapsed since {@link #start()} */
+    public long getWallNanos() {
+        long start = wallStart.get();
+        return start == 0 ? 0 : System.nanoTime() - start;
+    }
+
+    public void record(Phase phase, long elapsed) {
+        nanos[phase.ordinal()].add(elapsed);
+        counts[phase.ordinal()].increment();
+    }
+
+    public long getNanos(Phase phase) {
+        return nanos[phase.ordinal()].sum();
+    }
+
+    /** @return number of times the phase was recorded */
+    public long getCount(Phase phase) {
+        return counts[phase.ordinal()].sum();
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.netpreserve.jwarc.HttpResponse;
+import org.netpreserve.jwarc.MediaType;
+import org.netpreserve.jwarc.WarcCompression;
+import org.netpreserve.jwarc.WarcDigest;
+import org.netpreserve.jwarc.WarcRecord;
+import org.netpreserve.jwarc.WarcResponse;
+import org.netpreserve.jwarc.WarcWriter;
+
+/**
+ * WARC file collecting the documents which exceeded the time budget, to
+ * reproduce slow parses offline. Records are appended to the file, so that the
+ * quarantine file grows into a corpus of worst-case inputs over multiple runs.
+ */
+public class QuarantineWriter implements Closeable {
+
+    private final String path;
+    private final WarcWriter writer;
+    private int records = 0;
+
+    public QuarantineWriter(String path) throws IOException {
+        this.path = path;
+        FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        writer = new WarcWriter(channel, path.endsWith(".gz") ? WarcCompression.GZIP : WarcCompression.NONE);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public synchronized int getRecords() {
+        return records;
+    }
+
+    /** Copy a WARC record as is */
+    public synchronized void write(WarcRecord record) throws IOException {
+        writer.write(record);
+        records++;
+    }
+
+    /**
+     * Write a response record holding a decoded payload, for documents not
+     * read from a WARC file (payload corpus).
+     */
+    public synchronized void write(String url, String contentType, byte[] payload) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        sha1.update(payload);
+        HttpResponse.Builder http = new HttpResponse.Builder(200, "OK").body(MediaType.OCTET_STREAM, payload);
+        if (contentType != null) {
+            http.setHeader("Content-Type", contentType);
+        }
+        writer.write(new WarcResponse.Builder(URI.create(url)).payloadDigest(new WarcDigest(sha1)).body(http.build())
+                .build());
+        records++;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.netpreserve.jwarc.WarcReader;
+import org.netpreserve.jwarc.WarcRecord;
+
+/**
+ * Random access to WARC records by WARC file ID and offset, safe to be used
+ * from multiple threads. The WARC files are read by positional reads which do
+ * not modify the position of the shared file channels. Every thread reuses its
+ * own buffers and {@link Inflater}: a record in a gzip-compressed WARC file is
+ * read by inflating the gzip member holding the record while the record is
+ * consumed, so that per-thread memory does not depend on the record size.
+ */
+public class RandomAccessWarcReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 65536;
+
+    private static final int GZIP_FEXTRA = 4;
+    private static final int GZIP_FNAME = 8;
+    private static final int GZIP_FCOMMENT = 16;
+    private static final int GZIP_FHCRC = 2;
+
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final List<Boolean> gzipped = new ArrayList<>();
+
+    private final ThreadLocal<ReaderState> state = ThreadLocal.withInitial(ReaderState::new);
+
+    /** per-thread decoder state and buffers */
+    private static class ReaderState {
+        Inflater inflater = new Inflater(true);
+        ByteBuffer input = ByteBuffer.allocate(CHUNK_SIZE);
+        ByteBuffer output = ByteBuffer.allocate(CHUNK_SIZE);
+    }
+
+    /** view on a shared file channel starting at a given position */
+    private static class PositionalChannel implements ReadableByteChannel {
+        private final FileChannel channel;
+        private long position;
+
+        PositionalChannel(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            int n = channel.read(dst, position);
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        /** does not close the shared file channel */
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Open a WARC file for random access.
+     *
+     * @return WARC file ID
+     */
+    public synchronized int addWarcFile(String warcPath) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(warcPath));
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, 0);
+        channels.add(channel);
+        gzipped.add(magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b);
+        return channels.size() - 1;
+    }
+
+    /**
+     * Read the WARC record at the given offset. The record body is backed by
+     * buffers of the calling thread, the record must be consumed before the
+     * same thread calls this method again.
+     */
+    public WarcRecord read(int warcFileId, long offset) throws IOException {
+        FileChannel channel;
+        boolean isGzipped;
+        synchronized (this) {
+            channel = channels.get(warcFileId);
+            isGzipped = gzipped.get(warcFileId);
+        }
+        ReaderState s = state.get();
+        WarcReader reader;
+        if (isGzipped) {
+            s.output.clear().flip();
+            reader = new WarcReader(new InflatingChannel(s, channel, offset), s.output);
+        } else {
+            s.input.clear().flip();
+            reader = new WarcReader(new PositionalChannel(channel, offset), s.input);
+        }
+        Optional<WarcRecord> record = reader.next();
+        if (!record.isPresent()) {
+            throw new IOException("No WARC record at offset " + offset);
+        }
+        return record.get();
+    }
+
+    /**
+     * @return length of the gzip member header at the start of the buffer, -1
+     *         if the buffer does not start with a gzip member header or the
+     *         header exceeds the buffer
+     */
+    static int gzipHeaderLength(byte[] b, int n) {
+        if (n < 10 || (b[0] & 0xff) != 0x1f || (b[1] & 0xff) != 0x8b || b[2] != 8) {
+            return -1;
+        }
+        int flags = b[3] & 0xff;
+        int hdr = 10;
+        if ((flags & GZIP_FEXTRA) != 0) {
+            hdr += 2 + ((b[hdr] & 0xff) | ((b[hdr + 1] & 0xff) << 8));
+        }
+        if ((flags & GZIP_FNAME) != 0) {
+            while (hdr < n && b[hdr] != 0) {
+                hdr++;
+            }
+            hdr++;
+        }
+        if ((flags & GZIP_FCOMMENT) != 0) {
+            while (hdr < n && b[hdr] != 0) {
+                hdr++;
+            }
+            hdr++;
+        }
+        if ((flags & GZIP_FHCRC) != 0) {
+            hdr += 2;
+        }
+        return hdr < n ? hdr : -1;
+    }
+
+    /**
+     * Inflating view on the gzip member starting at a given position of a
+     * shared file channel, using the inflater and input buffer of the reader
+     * state. Reaches the end of input at the end of the gzip member.
+     */
+    private static class InflatingChannel implements ReadableByteChannel {
+        private final ReaderState s;
+        private final FileChannel channel;
+        private final long offset;
+        private long position;
+
+        InflatingChannel(ReaderState s, FileChannel channel, long offset) throws IOException {
+            this.s = s;
+            this.channel = channel;
+            this.offset = offset;
+            ByteBuffer in = s.input;
+            in.clear();
+            int n = channel.read(in, offset);
+            if (n < 10) {
+                throw new EOFException("Truncated gzip header at offset " + offset);
+            }
+            position = offset + n;
+            byte[] b = in.array();
+            if ((b[0] & 0xff) != 0x1f || (b[1] & 0xff) != 0x8b || b[2] != 8) {
+                throw new IOException("No gzip member at offset " + offset);
+            }
+            int hdr = gzipHeaderLength(b, n);
+            if (hdr < 0) {
+                throw new IOException("gzip header exceeds buffer at offset " + offset);
+            }
+            s.inflater.reset();
+            s.inflater.setInput(b, hdr, n - hdr);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            Inflater inflater = s.inflater;
+            try {
+                while (dst.hasRemaining()) {
+                    if (inflater.finished()) {
+                        return -1;
+                    }
+                    int r = inflater.inflate(dst);
+                    if (r > 0) {
+                        return r;
+                    }
+                    if (inflater.needsInput()) {
+                        ByteBuffer in = s.input;
+                        in.clear();
+                        int n = channel.read(in, position);
+                        if (n <= 0) {
+                            throw new EOFException("Truncated gzip member at offset " + offset);
+                        }
+                        position += n;
+                        inflater.setInput(in.array(), 0, n);
+                    } else if (inflater.needsDictionary()) {
+                        throw new IOException("Invalid gzip member at offset " + offset);
+                    }
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Failed to inflate gzip member at offset " + offset, e);
+            }
+            return 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        /** does not close the shared file channel */
+        @Override
+        public void close() {
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+        channels.clear();
+        gzipped.clear();
+    }
+
+}
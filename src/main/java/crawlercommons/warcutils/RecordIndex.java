@@ -0,0 +1,45 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+/**
+ * Index of WARC response records: URL &rarr; (WARC file ID, offset, HTTP
+ * status, content-type). Records are addressed by an integer ID, IDs are
+ * assigned in the order the records are stored in the WARC file(s).
+ */
+public interface RecordIndex {
+
+    /** @return number of indexed records */
+    public int size();
+
+    /** @return record ID or -1 if the URL is not indexed */
+    public int getId(String url);
+
+    public String getUrl(int id);
+
+    public int getWarcFileId(int id);
+
+    public long getOffset(int id);
+
+    public int getStatus(int id);
+
+    public String getContentType(int id);
+
+    /** @return approx. number of bytes of heap memory held by the index */
+    public long estimateMemory();
+
+}
@@ -0,0 +1,576 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+
+/**
+ * Machine-readable results of repeated runs of a test: configuration (system
+ * properties), crawler-commons version, JVM and the counters of every run.
+ * Results are written as JSON or CSV (chosen by the file suffix) and can be
+ * read back as baseline to detect regressions of throughput, allocation rate
+ * and tail latency.
+ */
+public class RunResults {
+
+    /** prefixes of the system properties recorded as configuration */
+    private static final String[] CONFIG_PREFIXES = { "warc.", "sitemap.", "robots.", "robot.", "feed.", "report." };
+
+    private static final String[] JVM_PROPERTIES = { "java.version", "java.vendor", "java.vm.name", "java.vm.version",
+            "os.name", "os.arch" };
+
+    /** metrics compared with the baseline, mapped to true if higher is better */
+    private static final Map<String,Boolean> COMPARED = new LinkedHashMap<>();
+    static {
+        COMPARED.put("documentsPerSecond", true);
+        COMPARED.put("inputBytesPerSecond", true);
+        COMPARED.put("allocatedBytesPerInputByte", false);
+        COMPARED.put("latencyP99Micros", false);
+        COMPARED.put("latencyP999Micros", false);
+    }
+
+    /** file to write the results to, JSON or CSV if the suffix is .csv */
+    protected String resultsFile = System.getProperty("report.results");
+    /** results of a previous run to compare with */
+    protected String baselineFile = System.getProperty("report.baseline");
+    /** min. relative change (percent) reported as regression */
+    protected double threshold = Double.parseDouble(System.getProperty("report.baseline.threshold", "5.0"));
+
+    private String test;
+    private String version;
+    private final Map<String,String> jvm = new TreeMap<>();
+    private final Map<String,String> config = new TreeMap<>();
+    private final List<Map<String,Number>> runs = new ArrayList<>();
+
+    private RunResults() {
+    }
+
+    /**
+     * Results of the current JVM: the configuration is read from the system
+     * properties.
+     */
+    public RunResults(String test, String version) {
+        this.test = test;
+        this.version = version;
+        for (String key : JVM_PROPERTIES) {
+            jvm.put(key, System.getProperty(key, ""));
+        }
+        jvm.put("availableProcessors", Integer.toString(Runtime.getRuntime().availableProcessors()));
+        jvm.put("maxMemory", Long.toString(Runtime.getRuntime().maxMemory()));
+        for (String key : System.getProperties().stringPropertyNames()) {
+            for (String prefix : CONFIG_PREFIXES) {
+                if (key.startsWith(prefix) && !isRunControl(key)) {
+                    config.put(key, System.getProperty(key));
+                }
+            }
+        }
+    }
+
+    /** properties controlling the test runs and the results, not the test itself */
+    private static boolean isRunControl(String key) {
+        return key.startsWith("report.results") || key.startsWith("report.baseline") || key.equals("report.repetitions")
+                || key.equals("report.warmup") || key.startsWith("report.jmx");
+    }
+
+    /** @return number of runs to be measured (<code>report.repetitions</code>) */
+    public static int getRepetitions() {
+        return Math.max(1, Integer.getInteger("report.repetitions", 1));
+    }
+
+    /** @return number of warm-up runs not recorded (<code>report.warmup</code>) */
+    public static int getWarmupRuns() {
+        return Math.max(0, Integer.getInteger("report.warmup", 0));
+    }
+
+    /**
+     * Add the counters of a run. Throughput and allocation per input byte are
+     * derived from the counters.
+     */
+    public void add(Map<String,Number> counters) {
+        Map<String,Number> metrics = new LinkedHashMap<>(counters);
+        long wallMillis = counters.getOrDefault("wallMillis", 0L).longValue();
+        long inputBytes = counters.getOrDefault("inputBytes", 0L).longValue();
+        long allocated = counters.getOrDefault("allocatedBytes", 0L).longValue();
+        if (wallMillis > 0) {
+            metrics.put("documentsPerSecond", 1000.0 * counters.get("documentsProcessed").longValue() / wallMillis);
+            metrics.put("inputBytesPerSecond", 1000.0 * inputBytes / wallMillis);
+        }
+        if (inputBytes > 0 && allocated > 0) {
+            metrics.put("allocatedBytesPerInputByte", (double) allocated / inputBytes);
+        }
+        runs.add(metrics);
+    }
+
+    public int size() {
+        return runs.size();
+    }
+
+    /** @return the values of a metric over all runs which recorded it */
+    public double[] values(String key) {
+        return runs.stream().filter(m -> m.get(key) != null).mapToDouble(m -> m.get(key).doubleValue()).toArray();
+    }
+
+    /**
+     * Write the results to <code>report.results</code> (if set) and compare
+     * them with <code>report.baseline</code> (if set).
+     *
+     * @return true if a regression was found
+     */
+    public boolean report(Logger log) throws IOException {
+        if (resultsFile != null) {
+            write(Paths.get(resultsFile));
+            log.info("Wrote results of {} run(s) to {}", runs.size(), resultsFile);
+        }
+        if (baselineFile == null) {
+            return false;
+        }
+        RunResults baseline = read(Paths.get(baselineFile));
+        List<String> regressions = compare(baseline, log);
+        if (regressions.isEmpty()) {
+            log.info("No regression compared to baseline {}", baselineFile);
+            return false;
+        }
+        for (String regression : regressions) {
+            log.error("Regression: {}", regression);
+        }
+        return true;
+    }
+
+    /**
+     * Compare the results with a baseline. A metric is regressed if it changed
+     * for the worse by more than <code>report.baseline.threshold</code> percent
+     * and, if both results hold two or more runs, the difference of the means
+     * is significant (95% confidence, Welch's t-test).
+     *
+     * @return descriptions of the regressed metrics
+     */
+    public List<String> compare(RunResults baseline, Logger log) {
+        log.info("Comparing {} run(s) of crawler-commons v{} with {} run(s) of v{} (baseline)", runs.size(), version,
+                baseline.runs.size(), baseline.version);
+        if (!test.equals(baseline.test)) {
+            log.warn("Baseline results are of a different test: {}", baseline.test);
+        }
+        Set<String> keys = new TreeSet<>(config.keySet());
+        keys.addAll(baseline.config.keySet());
+        for (String key : keys) {
+            if (!String.valueOf(config.get(key)).equals(String.valueOf(baseline.config.get(key)))) {
+                log.warn("Configuration differs from baseline: {} = {} (baseline: {})", key, config.get(key),
+                        baseline.config.get(key));
+            }
+        }
+        for (String key : JVM_PROPERTIES) {
+            if (!String.valueOf(jvm.get(key)).equals(String.valueOf(baseline.jvm.get(key)))) {
+                log.warn("JVM differs from baseline: {} = {} (baseline: {})", key, jvm.get(key), baseline.jvm.get(key));
+            }
+        }
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String,Boolean> e : COMPARED.entrySet()) {
+            String key = e.getKey();
+            double[] current = values(key);
+            double[] base = baseline.values(key);
+            if (current.length == 0 || base.length == 0) {
+                continue;
+            }
+            double mean = Statistics.mean(current);
+            double baseMean = Statistics.mean(base);
+            double diff = mean - baseMean;
+            double ci = Statistics.confidenceInterval95(current, base);
+            double relative = baseMean == 0.0 ? 0.0 : (100.0 * diff / baseMean);
+            boolean worse = e.getValue() ? (diff < 0) : (diff > 0);
+            boolean significant = Double.isNaN(ci) || Math.abs(diff) > ci;
+            boolean regressed = worse && significant && Math.abs(relative) > threshold;
+            log.info("{}\t{}\t{}%\t+/-{}\t{}{}", fDouble(baseMean), fDouble(mean), fPercent(relative), fDouble(ci), key,
+                    (regressed ? "\tREGRESSION" : ""));
+            if (regressed) {
+                regressions.add(String.format(Locale.ROOT, "%s %.1f -> %.1f (%+.1f%%)", key, baseMean, mean, relative));
+            }
+        }
+        return regressions;
+    }
+
+    private static String fDouble(double value) {
+        return String.format(Locale.ROOT, "%14.1f", value);
+    }
+
+    private static String fPercent(double value) {
+        return String.format(Locale.ROOT, "%+7.1f", value);
+    }
+
+    public void write(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            if (path.toString().endsWith(".csv")) {
+                writeCsv(out);
+            } else {
+                writeJson(out);
+            }
+        }
+    }
+
+    public static RunResults read(Path path) throws IOException {
+        String content = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        RunResults results = new RunResults();
+        if (path.toString().endsWith(".csv")) {
+            results.readCsv(content);
+        } else {
+            results.readJson(content);
+        }
+        return results;
+    }
+
+    private void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"test\": " + jsonString(test) + ",\n  \"version\": " + jsonString(version) + ",\n");
+        out.write("  \"jvm\": ");
+        writeJsonObject(out, jvm, "  ");
+        out.write(",\n  \"config\": ");
+        writeJsonObject(out, config, "  ");
+        out.write(",\n  \"runs\": [");
+        for (int i = 0; i < runs.size(); i++) {
+            out.write(i == 0 ? "\n    " : ",\n    ");
+            writeJsonObject(out, runs.get(i), "    ");
+        }
+        out.write("\n  ]\n}\n");
+    }
+
+    private static void writeJsonObject(Writer out, Map<String,?> map, String indent) throws IOException {
+        out.write('{');
+        String sep = "\n";
+        for (Map.Entry<String,?> e : map.entrySet()) {
+            Object value = e.getValue();
+            if (value instanceof Double && !Double.isFinite((Double) value)) {
+                continue;
+            }
+            out.write(sep + indent + "  " + jsonString(e.getKey()) + ": "
+                    + (value instanceof Number ? value.toString() : jsonString(String.valueOf(value))));
+            sep = ",\n";
+        }
+        out.write("\n" + indent + "}");
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readJson(String content) throws IOException {
+        Object parsed;
+        try {
+            parsed = new JsonReader(content).readValue();
+        } catch (IndexOutOfBoundsException | NumberFormatException e) {
+            throw new IOException("Invalid JSON input", e);
+        }
+        if (!(parsed instanceof Map)) {
+            throw new IOException("Not a JSON object");
+        }
+        Map<String,Object> json = (Map<String,Object>) parsed;
+        test = String.valueOf(json.get("test"));
+        version = String.valueOf(json.get("version"));
+        for (String field : new String[] { "jvm", "config" }) {
+            Map<String,String> target = field.equals("jvm") ? jvm : config;
+            Object map = json.get(field);
+            if (map instanceof Map) {
+                ((Map<String,Object>) map).forEach((k, v) -> target.put(k, String.valueOf(v)));
+            }
+        }
+        Object list = json.get("runs");
+        if (list instanceof List) {
+            for (Object run : (List<Object>) list) {
+                Map<String,Number> metrics = new LinkedHashMap<>();
+                ((Map<String,Object>) run).forEach((k, v) -> {
+                    if (v instanceof Number) {
+                        metrics.put(k, (Number) v);
+                    }
+                });
+                runs.add(metrics);
+            }
+        }
+    }
+
+    /**
+     * One row per run: test, version, JVM properties (prefixed by
+     * <code>jvm.</code>) and configuration (prefixed by <code>config.</code>)
+     * repeated in every row, followed by the metrics.
+     */
+    private void writeCsv(Writer out) throws IOException {
+        Set<String> metricKeys = new LinkedHashSet<>();
+        runs.forEach(m -> metricKeys.addAll(m.keySet()));
+        List<String> header = new ArrayList<>();
+        List<String> fixed = new ArrayList<>();
+        header.add("test");
+        fixed.add(test);
+        header.add("version");
+        fixed.add(version);
+        jvm.forEach((k, v) -> {
+            header.add("jvm." + k);
+            fixed.add(v);
+        });
+        config.forEach((k, v) -> {
+            header.add("config." + k);
+            fixed.add(v);
+        });
+        header.addAll(metricKeys);
+        writeCsvRow(out, header);
+        for (Map<String,Number> run : runs) {
+            List<String> row = new ArrayList<>(fixed);
+            for (String key : metricKeys) {
+                Number value = run.get(key);
+                row.add(value == null ? "" : value.toString());
+            }
+            writeCsvRow(out, row);
+        }
+    }
+
+    private static void writeCsvRow(Writer out, List<String> row) throws IOException {
+        for (int i = 0; i < row.size(); i++) {
+            String value = row.get(i);
+            if (i > 0) {
+                out.write(',');
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                value = '"' + value.replace("\"", "\"\"") + '"';
+            }
+            out.write(value);
+        }
+        out.write('\n');
+    }
+
+    private void readCsv(String content) throws IOException {
+        List<List<String>> rows = parseCsv(content);
+        if (rows.isEmpty()) {
+            throw new IOException("Empty CSV file");
+        }
+        List<String> header = rows.get(0);
+        for (List<String> row : rows.subList(1, rows.size())) {
+            Map<String,Number> metrics = new LinkedHashMap<>();
+            for (int i = 0; i < header.size() && i < row.size(); i++) {
+                String key = header.get(i);
+                String value = row.get(i);
+                if (key.equals("test")) {
+                    test = value;
+                } else if (key.equals("version")) {
+                    version = value;
+                } else if (key.startsWith("jvm.")) {
+                    jvm.put(key.substring(4), value);
+                } else if (key.startsWith("config.")) {
+                    config.put(key.substring(7), value);
+                } else if (!value.isEmpty()) {
+                    metrics.put(key, parseNumber(value));
+                }
+            }
+            runs.add(metrics);
+        }
+    }
+
+    private static List<List<String>> parseCsv(String content) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < content.length() && content.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        if (field.length() > 0 || !row.isEmpty()) {
+            row.add(field.toString());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private static Number parseNumber(String value) {
+        if (value.indexOf('.') >= 0 || value.indexOf('e') >= 0 || value.indexOf('E') >= 0) {
+            return Double.parseDouble(value);
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Minimal JSON reader, sufficient to read back the results written by
+     * {@link RunResults}: objects, arrays, strings, numbers, booleans and null.
+     */
+    private static class JsonReader {
+        private final String s;
+        private int pos = 0;
+
+        JsonReader(String s) {
+            this.s = s;
+        }
+
+        Object readValue() throws IOException {
+            skipWhitespace();
+            if (pos >= s.length()) {
+                throw new IOException("Unexpected end of JSON input");
+            }
+            char c = s.charAt(pos);
+            if (c == '{') {
+                pos++;
+                Map<String,Object> map = new LinkedHashMap<>();
+                skipWhitespace();
+                if (s.charAt(pos) == '}') {
+                    pos++;
+                    return map;
+                }
+                do {
+                    skipWhitespace();
+                    String key = readString();
+                    expect(':');
+                    map.put(key, readValue());
+                    skipWhitespace();
+                } while (s.charAt(pos++) == ',');
+                checkLast('}');
+                return map;
+            } else if (c == '[') {
+                pos++;
+                List<Object> list = new ArrayList<>();
+                skipWhitespace();
+                if (s.charAt(pos) == ']') {
+                    pos++;
+                    return list;
+                }
+                do {
+                    list.add(readValue());
+                    skipWhitespace();
+                } while (s.charAt(pos++) == ',');
+                checkLast(']');
+                return list;
+            } else if (c == '"') {
+                return readString();
+            } else if (s.startsWith("true", pos)) {
+                pos += 4;
+                return Boolean.TRUE;
+            } else if (s.startsWith("false", pos)) {
+                pos += 5;
+                return Boolean.FALSE;
+            } else if (s.startsWith("null", pos)) {
+                pos += 4;
+                return null;
+            }
+            int start = pos;
+            while (pos < s.length() && "+-.0123456789eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IOException("Unexpected character in JSON input at position " + pos + ": " + c);
+            }
+            return parseNumber(s.substring(start, pos));
+        }
+
+        private String readString() throws IOException {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            char c;
+            while ((c = s.charAt(pos++)) != '"') {
+                if (c == '\\') {
+                    c = s.charAt(pos++);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        case 'b':
+                            c = '\b';
+                            break;
+                        case 'f':
+                            c = '\f';
+                            break;
+                        case 'u':
+                            c = (char) Integer.parseInt(s.substring(pos, pos + 4), 16);
+                            pos += 4;
+                            break;
+                        default:
+                            // '"', '\\' and '/'
+                    }
+                }
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+
+        private void expect(char c) throws IOException {
+            skipWhitespace();
+            if (pos >= s.length() || s.charAt(pos) != c) {
+                throw new IOException("Expected '" + c + "' in JSON input at position " + pos);
+            }
+            pos++;
+        }
+
+        private void checkLast(char c) throws IOException {
+            if (s.charAt(pos - 1) != c) {
+                throw new IOException("Expected '" + c + "' in JSON input at position " + (pos - 1));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+/**
+ * Basic statistics over repeated measurements: mean, standard deviation and
+ * confidence interval based on Student's t-distribution.
+ */
+public class Statistics {
+
+    /** two-sided 95% quantiles of Student's t-distribution, degrees of freedom 1 - 30 */
+    private static final double[] T_975 = { 12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228, 2.201,
+            2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086, 2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052,
+            2.048, 2.045, 2.042 };
+
+    private Statistics() {
+    }
+
+    public static double mean(double[] values) {
+        double sum = 0.0;
+        for (double v : values) {
+            sum += v;
+        }
+        return values.length == 0 ? 0.0 : (sum / values.length);
+    }
+
+    /** @return sample standard deviation */
+    public static double stddev(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double mean = mean(values);
+        double sum = 0.0;
+        for (double v : values) {
+            sum += (v - mean) * (v - mean);
+        }
+        return Math.sqrt(sum / (values.length - 1));
+    }
+
+    /** @return 97.5% quantile of the t-distribution */
+    public static double tQuantile975(int degreesOfFreedom) {
+        if (degreesOfFreedom < 1) {
+            return Double.NaN;
+        }
+        if (degreesOfFreedom <= T_975.length) {
+            return T_975[degreesOfFreedom - 1];
+        }
+        return 1.960;
+    }
+
+    /**
+     * @return half-width of the 95% confidence interval of the mean
+     */
+    public static double confidenceInterval95(double[] values) {
+        if (values.length < 2) {
+            return Double.NaN;
+        }
+        return tQuantile975(values.length - 1) * stddev(values) / Math.sqrt(values.length);
+    }
+
+    /**
+     * Welch's t-test: half-width of the 95% confidence interval of the
+     * difference of the means of two samples with possibly unequal variances.
+     * The degrees of freedom are approximated by the Welch-Satterthwaite
+     * equation.
+     */
+    public static double confidenceInterval95(double[] a, double[] b) {
+        if (a.length < 2 || b.length < 2) {
+            return Double.NaN;
+        }
+        double va = stddev(a) * stddev(a) / a.length;
+        double vb = stddev(b) * stddev(b) / b.length;
+        if ((va + vb) == 0.0) {
+            return 0.0;
+        }
+        double df = (va + vb) * (va + vb) / (va * va / (a.length - 1) + vb * vb / (b.length - 1));
+        return tQuantile975(Math.max(1, (int) df)) * Math.sqrt(va + vb);
+    }
+
+}
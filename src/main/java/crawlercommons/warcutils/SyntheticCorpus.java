@@ -0,0 +1,426 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.UUID;
+
+import org.netpreserve.jwarc.HttpResponse;
+import org.netpreserve.jwarc.MediaType;
+import org.netpreserve.jwarc.WarcCompression;
+import org.netpreserve.jwarc.WarcDigest;
+import org.netpreserve.jwarc.WarcResponse;
+import org.netpreserve.jwarc.WarcWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generator of WARC files holding synthetic responses (sitemaps, sitemap
+ * indexes, feeds and robots.txt files), to measure how the parsers scale with
+ * the document size and the number of rules without access to real WARC files
+ * or the network. The output is reproducible: all content, record IDs and
+ * dates are derived from a seeded random number generator.
+ *
+ * Every document is served from a host of its own, named after the kind and
+ * size of the document, e.g. <code>www.sitemap-1000-3.synthetic.example</code>.
+ */
+public class SyntheticCorpus implements Closeable {
+
+    private static Logger LOG = LoggerFactory.getLogger(SyntheticCorpus.class);
+
+    public static final String[] KINDS = { "sitemaps", "large", "index", "extensions", "rss", "atom", "robots" };
+
+    /** max. size of a sitemap according to the sitemap protocol */
+    public static final int SITEMAP_MAX_BYTES = 52428800;
+    /** max. number of URLs in a sitemap according to the sitemap protocol */
+    public static final int SITEMAP_MAX_URLS = 50000;
+
+    private static final String SITEMAP_NS = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final String[] WORDS = { "news", "products", "category", "blog", "archive", "images", "video", "shop",
+            "about", "search", "tags", "users", "docs", "media", "events", "download" };
+    private static final String[] SUFFIXES = { ".html", ".html", ".html", ".htm", ".php?id=", ".pdf", ".jpg", "/" };
+
+    /** number of URLs per sitemap resp. items per feed, one series per value */
+    protected int[] urlCounts = getInts("synthetic.urls", "10,100,1000,10000,50000");
+    /** number of documents per series */
+    protected int documents = Integer.getInteger("synthetic.documents", 10);
+    /** size of the large sitemap in bytes */
+    protected int largeBytes = Integer.getInteger("synthetic.large.bytes", SITEMAP_MAX_BYTES);
+    protected int indexDepth = Integer.getInteger("synthetic.index.depth", 3);
+    protected int indexFanout = Integer.getInteger("synthetic.index.fanout", 5);
+    /** number of URLs in the leaf sitemaps of the indexes */
+    protected int indexUrls = Integer.getInteger("synthetic.index.urls", 100);
+    /** number of rules per robots.txt file, one series per value */
+    protected int[] ruleCounts = getInts("synthetic.rules", "10,100,1000,10000");
+    /** number of agent groups the rules are distributed over, one series per value */
+    protected int[] agentCounts = getInts("synthetic.agents", "1,10,100");
+    /** number of URLs in the sitemap listed in every robots.txt file */
+    protected int robotsUrls = Integer.getInteger("synthetic.robots.urls", 1000);
+
+    private final WarcWriter writer;
+    private final Random random;
+    private final Instant date = Instant.parse("2024-01-01T00:00:00Z");
+    private long records = 0;
+    private long payloadBytes = 0;
+
+    public SyntheticCorpus(String warcPath, long seed) throws IOException {
+        FileChannel channel = FileChannel.open(Paths.get(warcPath), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new WarcWriter(channel, warcPath.endsWith(".gz") ? WarcCompression.GZIP : WarcCompression.NONE);
+        random = new Random(seed);
+    }
+
+    private static int[] getInts(String property, String defaultValue) {
+        return Arrays.stream(System.getProperty(property, defaultValue).split(",")).map(String::trim)
+                .filter(s -> !s.isEmpty()).mapToInt(Integer::parseInt).toArray();
+    }
+
+    public void write(String kind) throws IOException {
+        switch (kind) {
+            case "sitemaps":
+                writeSitemaps();
+                break;
+            case "large":
+                writeLargeSitemap();
+                break;
+            case "index":
+                writeIndex();
+                break;
+            case "extensions":
+                writeExtensionSitemaps();
+                break;
+            case "rss":
+                writeFeeds(false);
+                break;
+            case "atom":
+                writeFeeds(true);
+                break;
+            case "robots":
+                writeRobots();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown kind of documents: " + kind);
+        }
+    }
+
+    /** Write a successful response (HTTP status 200) */
+    public void write(String url, String contentType, byte[] payload) throws IOException {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+        sha1.update(payload);
+        HttpResponse http = new HttpResponse.Builder(200, "OK").body(MediaType.parse(contentType), payload).build();
+        WarcResponse response = new WarcResponse.Builder(URI.create(url)) //
+                .recordId(new UUID(random.nextLong(), random.nextLong())) //
+                .date(date.plusSeconds(records)) //
+                .payloadDigest(new WarcDigest(sha1)) //
+                .body(http) //
+                .build();
+        writer.write(response);
+        records++;
+        payloadBytes += payload.length;
+    }
+
+    private void write(String url, String contentType, CharSequence content) throws IOException {
+        write(url, contentType, content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String host(String kind, int size, int copy) {
+        return "https://www." + kind + "-" + size + "-" + copy + ".synthetic.example";
+    }
+
+    /** @return random path, with query or file suffix */
+    private String randomPath() {
+        String suffix = SUFFIXES[random.nextInt(SUFFIXES.length)];
+        if (suffix.endsWith("=")) {
+            suffix += random.nextInt(100000);
+        }
+        return "/" + WORDS[random.nextInt(WORDS.length)] + "-" + random.nextInt(100) + "/"
+                + WORDS[random.nextInt(WORDS.length)] + "-" + random.nextInt(1000000) + suffix;
+    }
+
+    private StringBuilder startUrlset(StringBuilder sb, boolean extensions) {
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<urlset xmlns=\"").append(SITEMAP_NS).append('"');
+        if (extensions) {
+            sb.append("\n  xmlns:image=\"http://www.google.com/schemas/sitemap-image/1.1\"");
+            sb.append("\n  xmlns:video=\"http://www.google.com/schemas/sitemap-video/1.1\"");
+            sb.append("\n  xmlns:news=\"http://www.google.com/schemas/sitemap-news/0.9\"");
+            sb.append("\n  xmlns:xhtml=\"http://www.w3.org/1999/xhtml\"");
+        }
+        return sb.append(">\n");
+    }
+
+    private String sitemap(String host, int urls) {
+        StringBuilder sb = startUrlset(new StringBuilder(urls * 120), false);
+        for (int i = 0; i < urls; i++) {
+            sb.append("<url><loc>").append(host).append(randomPath()).append("</loc><lastmod>2024-")
+                    .append(String.format(Locale.ROOT, "%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                    .append("</lastmod><changefreq>daily</changefreq><priority>0.")
+                    .append(1 + random.nextInt(9)).append("</priority></url>\n");
+        }
+        return sb.append("</urlset>\n").toString();
+    }
+
+    /** XML sitemaps with the number of URLs given by <code>synthetic.urls</code> */
+    public void writeSitemaps() throws IOException {
+        for (int urls : urlCounts) {
+            for (int copy = 0; copy < documents; copy++) {
+                String host = host("sitemap", urls, copy);
+                write(host + "/sitemap.xml", "application/xml", sitemap(host, urls));
+            }
+        }
+    }
+
+    /**
+     * A single sitemap of (by default) 50 MiB, the max. size allowed by the
+     * sitemap protocol, holding 50,000 URLs padded to the required length.
+     */
+    public void writeLargeSitemap() throws IOException {
+        String host = host("large", largeBytes, 0);
+        String prefix = "<url><loc>" + host;
+        String suffix = "</loc></url>\n";
+        StringBuilder sb = startUrlset(new StringBuilder(largeBytes), false);
+        int perUrl = (largeBytes - sb.length() - 12) / SITEMAP_MAX_URLS;
+        for (int i = 0; i < SITEMAP_MAX_URLS; i++) {
+            String path = randomPath();
+            sb.append(prefix).append(path);
+            int padding = perUrl - prefix.length() - path.length() - suffix.length();
+            String param = path.indexOf('?') >= 0 ? "&amp;p=" : "?p=";
+            if (padding > param.length()) {
+                sb.append(param);
+                for (int j = param.length(); j < padding; j++) {
+                    sb.append((char) ('a' + random.nextInt(26)));
+                }
+            }
+            sb.append(suffix);
+        }
+        sb.append("</urlset>\n");
+        write(host + "/sitemap-large.xml", "application/xml", sb);
+    }
+
+    /**
+     * Nested sitemap indexes: a tree of <code>synthetic.index.depth</code>
+     * levels of indexes, every index referencing
+     * <code>synthetic.index.fanout</code> indexes resp. sitemaps on the last
+     * level. Indexes are written before the sitemaps they reference.
+     */
+    public void writeIndex() throws IOException {
+        String host = host("index", indexDepth, indexFanout);
+        writeIndex(host, "/sitemap-index", 1);
+    }
+
+    private void writeIndex(String host, String path, int level) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<sitemapindex xmlns=\"").append(SITEMAP_NS).append("\">\n");
+        for (int i = 0; i < indexFanout; i++) {
+            String child = (level < indexDepth ? path : path.replace("index", "leaf")) + "-" + i;
+            sb.append("<sitemap><loc>").append(host).append(child).append(".xml</loc><lastmod>2024-01-01</lastmod></sitemap>\n");
+        }
+        sb.append("</sitemapindex>\n");
+        write(host + path + ".xml", "application/xml", sb);
+        for (int i = 0; i < indexFanout; i++) {
+            if (level < indexDepth) {
+                writeIndex(host, path + "-" + i, level + 1);
+            } else {
+                write(host + path.replace("index", "leaf") + "-" + i + ".xml", "application/xml", sitemap(host, indexUrls));
+            }
+        }
+    }
+
+    /**
+     * Sitemaps where every URL carries image, video, news and hreflang
+     * extension elements. URLs are cut off if the sitemap would exceed the
+     * max. size of 50 MiB.
+     */
+    public void writeExtensionSitemaps() throws IOException {
+        for (int urls : urlCounts) {
+            for (int copy = 0; copy < documents; copy++) {
+                String host = host("extensions", urls, copy);
+                StringBuilder sb = startUrlset(new StringBuilder(urls * 1200), true);
+                for (int i = 0; i < urls && sb.length() < (SITEMAP_MAX_BYTES - 4096); i++) {
+                    String path = randomPath();
+                    String title = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(100000);
+                    sb.append("<url><loc>").append(host).append(path).append("</loc>\n");
+                    sb.append(" <xhtml:link rel=\"alternate\" hreflang=\"de\" href=\"").append(host).append("/de").append(path)
+                            .append("\"/>\n");
+                    for (int j = 0; j < 2; j++) {
+                        sb.append(" <image:image><image:loc>").append(host).append("/img/").append(random.nextInt(1000000))
+                                .append(".jpg</image:loc><image:caption>").append(title).append("</image:caption></image:image>\n");
+                    }
+                    sb.append(" <video:video><video:thumbnail_loc>").append(host).append("/thumb/").append(random.nextInt(1000000))
+                            .append(".jpg</video:thumbnail_loc><video:title>").append(title)
+                            .append("</video:title><video:description>Synthetic video ").append(title)
+                            .append("</video:description><video:content_loc>").append(host).append("/video/")
+                            .append(random.nextInt(1000000)).append(".mp4</video:content_loc><video:duration>")
+                            .append(1 + random.nextInt(3600)).append("</video:duration></video:video>\n");
+                    sb.append(" <news:news><news:publication><news:name>Synthetic News</news:name>")
+                            .append("<news:language>en</news:language></news:publication>")
+                            .append("<news:publication_date>2024-01-01T00:00:00Z</news:publication_date><news:title>")
+                            .append(title).append("</news:title></news:news>\n");
+                    sb.append("</url>\n");
+                }
+                sb.append("</urlset>\n");
+                write(host + "/sitemap-extensions.xml", "application/xml", sb);
+            }
+        }
+    }
+
+    /** RSS 2.0 or Atom feeds with the number of items given by <code>synthetic.urls</code> */
+    public void writeFeeds(boolean atom) throws IOException {
+        String kind = atom ? "atom" : "rss";
+        for (int items : urlCounts) {
+            for (int copy = 0; copy < documents; copy++) {
+                String host = host(kind, items, copy);
+                StringBuilder sb = new StringBuilder(items * 300);
+                sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+                if (atom) {
+                    sb.append("<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>Synthetic feed</title><id>").append(host)
+                            .append("/</id><updated>2024-01-01T00:00:00Z</updated><link href=\"").append(host).append("/\"/>\n");
+                } else {
+                    sb.append("<rss version=\"2.0\"><channel><title>Synthetic feed</title><link>").append(host)
+                            .append("/</link><description>Synthetic feed</description>\n");
+                }
+                for (int i = 0; i < items; i++) {
+                    String url = host + randomPath();
+                    String title = WORDS[random.nextInt(WORDS.length)] + " " + random.nextInt(100000);
+                    int day = 1 + random.nextInt(28);
+                    if (atom) {
+                        sb.append("<entry><title>").append(title).append("</title><link href=\"").append(url)
+                                .append("\"/><id>").append(url).append("</id><updated>2024-01-")
+                                .append(String.format(Locale.ROOT, "%02d", day))
+                                .append("T12:00:00Z</updated><summary>Synthetic entry ").append(title)
+                                .append("</summary></entry>\n");
+                    } else {
+                        sb.append("<item><title>").append(title).append("</title><link>").append(url)
+                                .append("</link><guid>").append(url).append("</guid><pubDate>")
+                                .append(String.format(Locale.ROOT, "%02d", day))
+                                .append(" Jan 2024 12:00:00 GMT</pubDate><description>Synthetic item ").append(title)
+                                .append("</description></item>\n");
+                    }
+                }
+                sb.append(atom ? "</feed>\n" : "</channel></rss>\n");
+                write(host + "/feed." + kind, atom ? "application/atom+xml" : "application/rss+xml", sb);
+            }
+        }
+    }
+
+    /** @return random robots.txt rule: path prefix, wildcard or end anchor */
+    private String randomRule() {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        switch (random.nextInt(5)) {
+            case 0:
+                return "Disallow: /" + word + "-" + random.nextInt(100) + "/";
+            case 1:
+                return "Disallow: /*" + SUFFIXES[random.nextInt(SUFFIXES.length)].replace("?id=", "?") + "$";
+            case 2:
+                return "Disallow: /*/" + word + "-" + random.nextInt(1000) + "*";
+            case 3:
+                return "Disallow: /" + word + "-*/*?id=" + random.nextInt(1000);
+            default:
+                return "Allow: /" + word + "-" + random.nextInt(100) + "/" + WORDS[random.nextInt(WORDS.length)];
+        }
+    }
+
+    /**
+     * robots.txt files for every combination of the number of rules
+     * (<code>synthetic.rules</code>) and agent groups
+     * (<code>synthetic.agents</code>). The rules are distributed over the
+     * groups, the last group addresses all agents (<code>*</code>). Every
+     * robots.txt lists a sitemap of the same host, used as source of URLs
+     * checked against the rules (<code>robots.urls=sitemaps</code>).
+     */
+    public void writeRobots() throws IOException {
+        for (int rules : ruleCounts) {
+            for (int agents : agentCounts) {
+                for (int copy = 0; copy < documents; copy++) {
+                    String host = host("robots-" + rules, agents, copy);
+                    StringBuilder sb = new StringBuilder(rules * 30);
+                    for (int group = 0; group < agents; group++) {
+                        if (group == agents - 1) {
+                            sb.append("User-agent: *\n");
+                        } else {
+                            sb.append("User-agent: bot").append(group).append("\nUser-agent: crawler-").append(group)
+                                    .append('\n');
+                        }
+                        int groupRules = rules / agents + (group < (rules % agents) ? 1 : 0);
+                        for (int i = 0; i < groupRules; i++) {
+                            sb.append(randomRule()).append('\n');
+                        }
+                        sb.append('\n');
+                    }
+                    sb.append("Sitemap: ").append(host).append("/sitemap.xml\n");
+                    write(host + "/robots.txt", "text/plain", sb);
+                    write(host + "/sitemap.xml", "application/xml", sitemap(host, robotsUrls));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            LOG.error("Usage:  SyntheticCorpus <WARC-file> <kind>...");
+            LOG.error("Write synthetic responses into a WARC file (gzip-compressed if the file name ends in .gz).");
+            LOG.error("Kinds of documents: {} or all", String.join(", ", KINDS));
+            LOG.error("Java properties:");
+            LOG.error("  synthetic.seed  (long) seed of the random number generator (default: 1)");
+            LOG.error("  synthetic.urls  (int,...) URLs per sitemap / items per feed, one series per value (default: 10,100,1000,10000,50000)");
+            LOG.error("  synthetic.documents (int) number of documents per series (default: 10)");
+            LOG.error("  synthetic.large.bytes (int) size of the large sitemap (default: 52428800)");
+            LOG.error("  synthetic.index.depth (int) levels of nested sitemap indexes (default: 3)");
+            LOG.error("  synthetic.index.fanout (int) sitemaps referenced per index (default: 5)");
+            LOG.error("  synthetic.index.urls (int) URLs per sitemap referenced by the indexes (default: 100)");
+            LOG.error("  synthetic.rules (int,...) rules per robots.txt, one series per value (default: 10,100,1000,10000)");
+            LOG.error("  synthetic.agents (int,...) agent groups per robots.txt, one series per value (default: 1,10,100)");
+            LOG.error("  synthetic.robots.urls (int) URLs in the sitemap of every robots.txt host (default: 1000)");
+            System.exit(1);
+        }
+        long start = System.currentTimeMillis();
+        try (SyntheticCorpus corpus = new SyntheticCorpus(args[0], Long.getLong("synthetic.seed", 1L))) {
+            for (int i = 1; i < args.length; i++) {
+                String[] kinds = args[i].equals("all") ? KINDS : new String[] { args[i] };
+                for (String kind : kinds) {
+                    long records = corpus.records;
+                    corpus.write(kind);
+                    LOG.info("Wrote {} records of kind {}", (corpus.records - records), kind);
+                }
+            }
+            LOG.info("Wrote {} records ({} payload bytes) to {} in {} ms", corpus.records, corpus.payloadBytes, args[0],
+                    (System.currentTimeMillis() - start));
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the N entries with the highest values, e.g. the documents which took
+ * longest to parse. Thread-safe, values not exceeding the current minimum of a
+ * full list are rejected without locking.
+ */
+public class TopN {
+
+    public static class Entry {
+        public final long value;
+        public final String key;
+
+        public Entry(long value, String key) {
+            this.value = value;
+            this.key = key;
+        }
+    }
+
+    private final int n;
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(Comparator.comparingLong((Entry e) -> e.value));
+    private volatile long threshold = Long.MIN_VALUE;
+
+    public TopN(int n) {
+        this.n = n;
+    }
+
+    public void offer(long value, String key) {
+        if (n <= 0 || value <= threshold) {
+            return;
+        }
+        synchronized (this) {
+            heap.add(new Entry(value, key));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+            if (heap.size() == n) {
+                threshold = heap.peek().value;
+            }
+        }
+    }
+
+    /** @return entries sorted by descending value */
+    public synchronized List<Entry> get() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(Comparator.comparingLong((Entry e) -> e.value).reversed());
+        return entries;
+    }
+
+}
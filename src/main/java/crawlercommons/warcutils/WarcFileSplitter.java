@@ -0,0 +1,206 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.netpreserve.jwarc.WarcReader;
+import org.netpreserve.jwarc.WarcRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Splits a gzip-compressed WARC file into byte ranges at record boundaries,
+ * so that the ranges can be inflated and parsed independently. Every record
+ * of a compressed WARC file is a gzip member of its own, a range starts at
+ * the first gzip member at or after the split point. The members are taken
+ * from the sidecar index (see {@link MappedRecordIndex}) if available,
+ * otherwise they are found by scanning the file for the gzip magic bytes and
+ * verifying every candidate by reading the WARC record header from the start
+ * of the inflated member and checking that the member is followed by
+ * another one.
+ */
+public class WarcFileSplitter {
+
+    private static Logger LOG = LoggerFactory.getLogger(WarcFileSplitter.class);
+
+    private static final int SCAN_BUFFER_SIZE = 65536;
+    private static final byte[] WARC_MAGIC = "WARC/".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Split a WARC file into ranges of about equal size.
+     * 
+     * @param splits
+     *            max. number of ranges
+     * @return range boundaries: the start offsets of the ranges followed by
+     *         the file size. Uncompressed WARC files are not split.
+     */
+    public static long[] split(String warcPath, int splits) throws IOException {
+        long size = Files.size(Paths.get(warcPath));
+        try (FileChannel channel = FileChannel.open(Paths.get(warcPath))) {
+            if (splits <= 1 || !hasGzipMagic(channel, 0)) {
+                if (splits > 1) {
+                    LOG.info("Not splitting uncompressed WARC file {}", warcPath);
+                }
+                return new long[] { 0, size };
+            }
+            long[] bounds = new long[splits + 1];
+            bounds[splits] = size;
+            MappedRecordIndex index = MappedRecordIndex.open(warcPath, 0);
+            if (index != null) {
+                splitByIndex(index, size, bounds);
+            } else {
+                Inflater inflater = new Inflater(true);
+                try {
+                    for (int i = 1; i < splits; i++) {
+                        bounds[i] = findMember(channel, Math.max(bounds[i - 1], size * i / splits), size, inflater);
+                    }
+                } finally {
+                    inflater.end();
+                }
+            }
+            return dedup(bounds);
+        }
+    }
+
+    private static boolean hasGzipMagic(FileChannel channel, long position) throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        channel.read(magic, position);
+        return magic.position() == 2 && (magic.get(0) & 0xff) == 0x1f && (magic.get(1) & 0xff) == 0x8b;
+    }
+
+    /** split at the offsets of the response records held in the sidecar index */
+    private static void splitByIndex(MappedRecordIndex index, long size, long[] bounds) {
+        int splits = bounds.length - 1;
+        int id = 0;
+        for (int i = 1; i < splits; i++) {
+            long target = size * i / splits;
+            while (id < index.size() && index.getOffset(id) < target) {
+                id++;
+            }
+            bounds[i] = id < index.size() ? index.getOffset(id) : size;
+        }
+    }
+
+    /** remove empty ranges */
+    private static long[] dedup(long[] bounds) {
+        int n = 1;
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] > bounds[n - 1]) {
+                bounds[n++] = bounds[i];
+            }
+        }
+        long[] res = new long[n];
+        System.arraycopy(bounds, 0, res, 0, n);
+        return res;
+    }
+
+    /**
+     * @return offset of the first gzip member holding a WARC record at or
+     *         after the given position, the file size if there is none
+     */
+    private static long findMember(FileChannel channel, long position, long size, Inflater inflater) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] b = buf.array();
+        long pos = position;
+        while (pos < size) {
+            buf.clear();
+            int n = channel.read(buf, pos);
+            if (n < 3) {
+                break;
+            }
+            for (int i = 0; i < n - 2; i++) {
+                if ((b[i] & 0xff) == 0x1f && (b[i + 1] & 0xff) == 0x8b && b[i + 2] == 8 && isRecordStart(channel, pos + i, inflater)) {
+                    return pos + i;
+                }
+            }
+            // the magic bytes may span the buffer boundary
+            pos += n - 2;
+        }
+        return size;
+    }
+
+    /**
+     * Verify that a WARC record header can be read from the start of the gzip
+     * member at offset and that the member ends at the end of the file or at
+     * the start of another gzip member. The latter excludes gzipped WARC
+     * records held in the payload of a record. The member is inflated by the
+     * given inflater.
+     */
+    private static boolean isRecordStart(FileChannel channel, long offset, Inflater inflater) {
+        ByteBuffer in = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] out = new byte[SCAN_BUFFER_SIZE];
+        try {
+            int n = channel.read(in, offset);
+            int hdr = RandomAccessWarcReader.gzipHeaderLength(in.array(), n);
+            if (hdr < 0) {
+                return false;
+            }
+            inflater.reset();
+            inflater.setInput(in.array(), hdr, n - hdr);
+            int length = 0;
+            while (length < out.length && !inflater.finished() && !inflater.needsInput()) {
+                int r = inflater.inflate(out, length, out.length - length);
+                if (r == 0) {
+                    break;
+                }
+                length += r;
+            }
+            if (length < WARC_MAGIC.length || !Arrays.equals(out, 0, WARC_MAGIC.length, WARC_MAGIC, 0, WARC_MAGIC.length)) {
+                return false;
+            }
+            try (WarcReader reader = new WarcReader(Channels.newChannel(new ByteArrayInputStream(out, 0, length)))) {
+                Optional<WarcRecord> record = reader.next();
+                if (!record.isPresent()) {
+                    return false;
+                }
+            }
+            // inflate the remainder of the member
+            long inputPosition = offset + n;
+            while (!inflater.finished()) {
+                if (inflater.needsInput()) {
+                    in.clear();
+                    int r = channel.read(in, inputPosition);
+                    if (r <= 0) {
+                        return false;
+                    }
+                    inputPosition += r;
+                    inflater.setInput(in.array(), 0, r);
+                } else if (inflater.inflate(out) == 0 && inflater.needsDictionary()) {
+                    return false;
+                }
+            }
+            // skip the gzip trailer (CRC32 and size)
+            long end = offset + hdr + inflater.getBytesRead() + 8;
+            return end == channel.size() || hasGzipMagic(channel, end);
+        } catch (IOException | DataFormatException | RuntimeException e) {
+            return false;
+        }
+    }
+
+}
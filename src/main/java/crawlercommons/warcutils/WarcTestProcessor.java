@@ -1,19 +1,38 @@
 package crawlercommons.warcutils;
 
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
 import java.net.MalformedURLException;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 
+import javax.management.JMException;
+
+import org.netpreserve.jwarc.DecodedBody;
+import org.netpreserve.jwarc.HttpResponse;
 import org.netpreserve.jwarc.MessageBody;
-import org.netpreserve.jwarc.MessageHeaders;
+import org.netpreserve.jwarc.WarcDigest;
 import org.netpreserve.jwarc.WarcPayload;
 import org.netpreserve.jwarc.WarcReader;
 import org.netpreserve.jwarc.WarcRecord;
@@ -22,50 +41,160 @@ import org.netpreserve.jwarc.WarcTargetRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public abstract class WarcTestProcessor {
+import crawlercommons.warcutils.PhaseTimes.Phase;
+
+public abstract class WarcTestProcessor implements Closeable {
 
     protected static final long MAX_PAYLOAD_SIZE = 128 * 1048576;
     protected static final int BUFFER_SIZE = 8192;
 
     private static Logger LOG = LoggerFactory.getLogger(WarcTestProcessor.class);
 
-    protected Map<String,Record> records = new LinkedHashMap<>();
+    protected RecordIndex records = new InMemoryRecordIndex();
+    /** visited set: IDs of indexed records already processed */
+    protected ConcurrentBitSet processedRecords = new ConcurrentBitSet(0);
     protected List<String> warcFiles = new ArrayList<>();
-    protected List<FileChannel> warcChannels = new ArrayList<>();
+    /** random access to records of the WARC files in {@link #warcFiles} */
+    protected RandomAccessWarcReader warcRecordReader = new RandomAccessWarcReader();
+    /**
+     * ID of the WARC file currently read by
+     * {@link #readWarcFile(String, ArchiveRecordProcessor)}, per reader thread
+     */
+    protected final ThreadLocal<Integer> currentWarcFileId = ThreadLocal.withInitial(() -> -1);
+
+    /** number of worker threads processing WARC records, 1 = process records on the reader thread */
+    protected int numThreads = Integer.getInteger("warc.threads", 1);
+    protected WorkerPool workers;
+    /** max. bytes of payloads read but not yet processed by the worker threads, 0 = not limited */
+    protected long maxInflightBytes = Long.getLong("warc.inflight.maxBytes", 0);
+
+    /**
+     * number of input files (shards) read concurrently by
+     * {@link #readInputs(String[], ArchiveRecordProcessor)}, the records of a
+     * shard are processed on its reader thread
+     */
+    protected int numShards = Integer.getInteger("warc.shards", 1);
+    /**
+     * number of byte ranges a compressed WARC file is split into, the ranges
+     * are read as shards by concurrent reader threads
+     */
+    protected int numSplits = Integer.getInteger("warc.splits", 1);
+    /** input files read by {@link #readInputs(String[], ArchiveRecordProcessor)} */
+    protected final Queue<Shard> shards = new ConcurrentLinkedQueue<>();
+    /** wall time of {@link #readInputs(String[], ArchiveRecordProcessor)} in nanoseconds */
+    protected volatile long shardsElapsed;
+
+    /** persist the record index in sidecar files next to the WARC files */
+    protected boolean indexSidecar = Boolean.valueOf(System.getProperty("warc.index.sidecar"));
+
+    /**
+     * Time spent per processing phase, null if not measured
+     * (<code>report.phases</code>). Static because the payload is read by the
+     * static {@link #getContent(WarcResponse)}, reset at the start of every
+     * run by {@link #resetPhases()}.
+     */
+    protected static final PhaseTimes phases = Boolean.valueOf(System.getProperty("report.phases")) ? new PhaseTimes() : null;
+
+    /** reset the phase times, so that warm-up and earlier runs are not included */
+    protected static void resetPhases() {
+        if (phases != null) {
+            phases.reset();
+        }
+    }
+
+    /**
+     * time budget per document in milliseconds, parses exceeding the budget
+     * are abandoned, 0 if not limited
+     */
+    protected long parseTimeout = Long.getLong("warc.parse.timeout", 0);
+    protected Watchdog watchdog = parseTimeout > 0 ? new Watchdog(parseTimeout) : null;
+    /** WARC file the documents exceeding the time budget are copied to */
+    protected String quarantinePath = System.getProperty("warc.parse.quarantine");
+    protected QuarantineWriter quarantine;
 
+    /** publish the counters as platform MBean */
+    protected boolean publishMetrics = Boolean.valueOf(System.getProperty("report.jmx"));
+    /** rolling window in seconds the published rates are averaged over */
+    protected int metricsWindow = Integer.getInteger("report.jmx.window", 10);
+
+    /**
+     * WARC response record: location in the WARC file(s) and HTTP status and
+     * content-type. Records held in the {@link RecordIndex} are only
+     * materialized on demand.
+     */
     protected class Record {
         public long offset;
         public int status;
         public int warcFileId;
+        /** ID in {@link WarcTestProcessor#records}, -1 if not indexed */
+        public int indexId = -1;
         public boolean isProcessed = false;
         public String contentType;
-        public MessageHeaders header;
-        public MessageHeaders httpHeaders;
+        /** WARC-Payload-Digest, null if not present or not read */
+        public String payloadDigest;
 
         private void parseHttpHeader(WarcResponse record) throws IOException {
-            httpHeaders = record.http().headers();
             status = record.http().status();
-            contentType = httpHeaders.first("Content-Type").orElse(null);
+            contentType = record.http().headers().first("Content-Type").orElse(null);
         }
 
         public Record(WarcResponse record, long offset) throws IOException {
-            header = record.headers();
             this.offset = offset;
+            this.warcFileId = currentWarcFileId.get();
+            this.payloadDigest = record.payloadDigest().map(WarcDigest::prefixedBase32).orElse(null);
+            long start = System.nanoTime();
             parseHttpHeader(record);
+            if (phases != null) {
+                phases.record(Phase.HTTP_HEADER, System.nanoTime() - start);
+            }
         }
 
-        public byte[] getContent() throws IOException {
-            FileChannel channel = warcChannels.get(warcFileId);
-            channel.position(offset);
-            try (WarcReader warcReader = new WarcReader(channel)) {
-                Optional<WarcRecord> record = warcReader.next();
-                if (record.isPresent()) {
-                    return WarcTestProcessor.getContent((WarcResponse) record.get());
+        protected Record(int status, String contentType, String payloadDigest) {
+            this.offset = -1;
+            this.status = status;
+            this.contentType = contentType;
+            this.payloadDigest = payloadDigest;
+        }
+
+        protected Record(int indexId) {
+            this.indexId = indexId;
+            this.warcFileId = records.getWarcFileId(indexId);
+            this.offset = records.getOffset(indexId);
+            this.status = records.getStatus(indexId);
+            this.contentType = records.getContentType(indexId);
+            this.isProcessed = processedRecords.get(indexId);
+        }
+
+        /**
+         * Mark the record as processed.
+         * 
+         * @return false if the record has been already processed before
+         */
+        public boolean markProcessed() {
+            if (indexId >= 0) {
+                isProcessed = true;
+                return processedRecords.set(indexId);
+            }
+            synchronized (this) {
+                if (isProcessed) {
+                    return false;
                 }
+                isProcessed = true;
+                return true;
             }
-            throw new IOException("No Warc response record at offset " + offset);
         }
 
+        public byte[] getContent() throws IOException {
+            long start = System.nanoTime();
+            WarcRecord record = warcRecordReader.read(warcFileId, offset);
+            if (phases != null) {
+                phases.record(Phase.WARC_READ, System.nanoTime() - start);
+            }
+            if (record instanceof WarcResponse) {
+                return WarcTestProcessor.getContent((WarcResponse) record);
+            }
+            throw new IOException("No Warc response record at offset " + offset);
+        }
 
         @Override
         public String toString() {
@@ -77,23 +206,136 @@ public abstract class WarcTestProcessor {
         }
     }
 
+    /**
+     * Record of a {@link PayloadCorpus}, the decoded payload is read from the
+     * memory-mapped corpus file.
+     */
+    protected class CorpusRecord extends Record {
+        public final String url;
+        protected final PayloadCorpus corpus;
+        protected final int corpusId;
+
+        public CorpusRecord(PayloadCorpus corpus, int id) {
+            super(corpus.getStatus(id), corpus.getContentType(id), corpus.getPayloadDigest(id));
+            this.url = corpus.getUrl(id);
+            this.corpus = corpus;
+            this.corpusId = id;
+        }
+
+        @Override
+        public byte[] getContent() {
+            long start = System.nanoTime();
+            byte[] content = corpus.getContent(corpusId);
+            if (phases != null) {
+                phases.record(Phase.CONTENT_DECODING, System.nanoTime() - start);
+            }
+            return content;
+        }
+
+        public int getPayloadLength() {
+            return corpus.getPayloadLength(corpusId);
+        }
+
+        /** @return the payload read from the mapped corpus file (zero-copy) */
+        public InputStream getContentStream() {
+            return corpus.getPayloadStream(corpusId);
+        }
+
+        @Override
+        public String toString() {
+            return "corpus=" + corpus.getPath() + ", id=" + corpusId + ", status=" + status;
+        }
+    }
+
     public static byte[] getContent(WarcResponse record) throws IOException {
         return getContent(record, MAX_PAYLOAD_SIZE);
     }
 
+    /**
+     * Get the decoded payload as stream, without buffering it. The stream must
+     * be consumed on the reader thread before the next record is read.
+     */
+    public static InputStream getContentStream(WarcResponse record) throws IOException {
+        if (!record.payload().isPresent()) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return Channels.newInputStream(getBody(record));
+    }
+
+    private static MessageBody getBody(WarcResponse record) throws IOException {
+        try {
+            return record.http().bodyDecoded();
+        } catch (IOException e) {
+            LOG.warn("Failed to decode WARC payload", e);
+            LOG.warn("Retrying payload without decoding");
+            return record.http().body();
+        }
+    }
+
     public static byte[] getContent(WarcResponse record, long maxSize) throws IOException {
         Optional<WarcPayload> payload = record.payload();
         if (!payload.isPresent()) {
             return new byte[0];
         }
-        MessageBody body;
+        if (phases != null) {
+            return getContentTimed(record, maxSize);
+        }
+        return readBody(record, getBody(record), maxSize);
+    }
+
+    /**
+     * Read the payload in two timed steps: the HTTP body is read from the WARC
+     * record (inflating the WARC record and removing the chunked transfer
+     * encoding), the content encoding is then decoded from memory.
+     */
+    private static byte[] getContentTimed(WarcResponse record, long maxSize) throws IOException {
+        long start = System.nanoTime();
+        HttpResponse http = record.http();
+        byte[] raw = readBody(record, http.body(), maxSize);
+        long read = System.nanoTime();
+        phases.record(Phase.PAYLOAD_READ, read - start);
+        byte[] content = raw;
         try {
-            body = record.http().bodyDecoded();
+            DecodedBody.Encoding encoding = getContentEncoding(http);
+            if (encoding != null) {
+                content = readBody(record, DecodedBody.create(Channels.newChannel(new ByteArrayInputStream(raw)), encoding),
+                        maxSize);
+            }
         } catch (IOException e) {
             LOG.warn("Failed to decode WARC payload", e);
             LOG.warn("Retrying payload without decoding");
-            body = record.http().body();
         }
+        phases.record(Phase.CONTENT_DECODING, System.nanoTime() - read);
+        return content;
+    }
+
+    /**
+     * @return the content encoding of the HTTP response, null if not encoded
+     * @throws IOException
+     *             if the content encoding is not supported (same as
+     *             {@link HttpResponse#bodyDecoded()})
+     */
+    private static DecodedBody.Encoding getContentEncoding(HttpResponse http) throws IOException {
+        List<String> encodings = http.headers().all("Content-Encoding");
+        if (encodings.isEmpty()) {
+            return null;
+        } else if (encodings.size() > 1) {
+            throw new IOException("Multiple Content-Encodings not supported: " + encodings);
+        }
+        String encoding = encodings.get(0);
+        if (encoding.equalsIgnoreCase("identity") || encoding.equalsIgnoreCase("none")) {
+            return null;
+        } else if (encoding.equalsIgnoreCase("gzip") || encoding.equalsIgnoreCase("x-gzip")) {
+            return DecodedBody.Encoding.GZIP;
+        } else if (encoding.equalsIgnoreCase("br")) {
+            return DecodedBody.Encoding.BROTLI;
+        } else if (encoding.equalsIgnoreCase("deflate")) {
+            return DecodedBody.Encoding.DEFLATE;
+        }
+        throw new IOException("Content-Encoding not supported: " + encoding);
+    }
+
+    private static byte[] readBody(WarcResponse record, MessageBody body, long maxSize) throws IOException {
         long size = body.size();
         if (size > maxSize) {
             throw new IOException("WARC payload too large");
@@ -136,28 +378,428 @@ public abstract class WarcTestProcessor {
         return arr;
     }
 
-    public void readWarcFile(String warcPath, ArchiveRecordProcessor proc) throws MalformedURLException, IOException {
-        FileChannel channel = FileChannel.open(Paths.get(warcPath));
+    /**
+     * Open WARC file for random access.
+     * 
+     * @return WARC file ID
+     */
+    protected synchronized int openWarcFile(String warcPath) throws IOException {
         warcFiles.add(warcPath);
-        warcChannels.add(channel);
+        return warcRecordReader.addWarcFile(warcPath);
+    }
+
+    /**
+     * Read the response records of a WARC file.
+     * 
+     * @return number of response records read
+     */
+    public int readWarcFile(String warcPath, ArchiveRecordProcessor proc) throws MalformedURLException, IOException {
+        return readWarcFile(warcPath, openWarcFile(warcPath), 0, Long.MAX_VALUE, proc);
+    }
+
+    /**
+     * Read the response records of a byte range of a WARC file: all records
+     * starting at or after <code>start</code> and before <code>end</code>.
+     * The range must start at a record boundary.
+     * 
+     * @return number of response records read
+     */
+    protected int readWarcFile(String warcPath, int warcFileId, long start, long end, ArchiveRecordProcessor proc)
+            throws MalformedURLException, IOException {
+        currentWarcFileId.set(warcFileId);
+        // sequential reads use a separate channel, closed together with the reader
+        FileChannel channel = FileChannel.open(Paths.get(warcPath));
+        channel.position(start);
+        WorkerPool pool = null;
+        if (numThreads > 1 && !isSharded() && proc instanceof ParallelArchiveRecordProcessor) {
+            pool = getWorkerPool();
+        }
+        if (phases != null) {
+            phases.start();
+        }
         try (WarcReader reader = new WarcReader(channel)) {
             int records = 0;
-            for (WarcRecord record : reader) {
+            Iterator<WarcRecord> iter = reader.iterator();
+            while (true) {
+                long readStart = System.nanoTime();
+                if (!iter.hasNext()) {
+                    break;
+                }
+                WarcRecord record = iter.next();
+                if (phases != null) {
+                    phases.record(Phase.WARC_READ, System.nanoTime() - readStart);
+                }
+                if (reader.position() >= end) {
+                    // first record of the next range
+                    break;
+                }
                 if (!(record instanceof WarcResponse)) {
                     continue;
                 }
                 records++;
-                proc.process(record, reader.position());
+                if (pool != null) {
+                    Runnable task = ((ParallelArchiveRecordProcessor) proc).prepare(record, reader.position());
+                    if (task != null) {
+                        pool.submit(task, PayloadTask.getBytes(task));
+                    }
+                } else {
+                    proc.process(record, reader.position());
+                }
                 if ((records % 1000) == 0) {
                     LOG.info("Read {} WARC response records", records);
                 }
             }
-            LOG.info("Read {} WARC response records from file {}", records, warcPath);
+            if (pool != null) {
+                pool.awaitCompletion();
+            }
+            if (start > 0 || end < Long.MAX_VALUE) {
+                LOG.info("Read {} WARC response records from file {} [{}, {})", records, warcPath, start, end);
+            } else {
+                LOG.info("Read {} WARC response records from file {}", records, warcPath);
+            }
+            return records;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing " + warcPath);
+        }
+    }
+
+    /**
+     * Read the records of a payload corpus. Unlike WARC files, the payloads are
+     * not read by the reader thread: the payload is read from the mapped
+     * corpus file by the task processing the record.
+     * 
+     * @return number of records read
+     */
+    public int readCorpus(String corpusPath, CorpusRecordProcessor proc) throws IOException {
+        PayloadCorpus corpus = PayloadCorpus.open(corpusPath);
+        if (phases != null) {
+            phases.start();
+        }
+        WorkerPool pool = null;
+        if (numThreads > 1 && !isSharded()) {
+            pool = getWorkerPool();
+        }
+        try {
+            for (int id = 0; id < corpus.size(); id++) {
+                Runnable task = proc.prepare(new CorpusRecord(corpus, id));
+                if (task == null) {
+                    continue;
+                }
+                if (pool != null) {
+                    pool.submit(task, PayloadTask.getBytes(task));
+                } else {
+                    task.run();
+                }
+            }
+            if (pool != null) {
+                pool.awaitCompletion();
+            }
+            LOG.info("Read {} records from payload corpus {}", corpus.size(), corpusPath);
+            return corpus.size();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing " + corpusPath);
+        }
+    }
+
+    /**
+     * Read a WARC file or a payload corpus (recognized by the file suffix
+     * {@value PayloadCorpus#SUFFIX}).
+     * 
+     * @return number of records read
+     */
+    public int readInput(String path, ArchiveRecordProcessor proc) throws IOException {
+        if (PayloadCorpus.isCorpus(path)) {
+            if (!(proc instanceof CorpusRecordProcessor)) {
+                throw new IllegalArgumentException("Payload corpus not supported: " + path);
+            }
+            return readCorpus(path, (CorpusRecordProcessor) proc);
+        } else {
+            return readWarcFile(path, proc);
+        }
+    }
+
+    /**
+     * Read all input files (WARC files or payload corpora). If
+     * <code>warc.shards</code> is greater than 1, the files are read
+     * concurrently by as many reader threads, each thread processes the
+     * records of the file it reads. If <code>warc.splits</code> is greater
+     * than 1, compressed WARC files are split into byte ranges at record
+     * boundaries which are read concurrently as separate shards. The
+     * counters are shared by all shards, elapsed time and throughput are
+     * recorded per shard.
+     */
+    public void readInputs(String[] paths, ArchiveRecordProcessor proc) throws IOException {
+        long start = System.nanoTime();
+        List<Shard> inputs = new ArrayList<>();
+        for (String path : paths) {
+            if (numSplits > 1 && !PayloadCorpus.isCorpus(path)) {
+                long[] bounds = WarcFileSplitter.split(path, numSplits);
+                int warcFileId = openWarcFile(path);
+                for (int i = 1; i < bounds.length; i++) {
+                    inputs.add(new Shard(path, warcFileId, bounds[i - 1], bounds[i]));
+                }
+                LOG.info("Split {} into {} ranges", path, bounds.length - 1);
+            } else {
+                inputs.add(new Shard(path, -1, 0, Files.size(Paths.get(path))));
+            }
+        }
+        int threads = Math.min(Math.max(numShards, numSplits), inputs.size());
+        if (!isSharded()) {
+            for (Shard shard : inputs) {
+                readShard(shard, proc);
+            }
+            shardsElapsed = System.nanoTime() - start;
+            return;
+        }
+        if (numThreads > 1) {
+            LOG.warn("Worker threads (warc.threads) not used, records are processed by the shard reader threads");
+        }
+        LOG.info("Reading {} shards using {} reader threads", inputs.size(), threads);
+        try (WorkerPool pool = new WorkerPool("shard", Math.max(threads, 1), Math.max(inputs.size(), 1))) {
+            for (Shard shard : inputs) {
+                pool.submit(() -> {
+                    try {
+                        readShard(shard, proc);
+                    } catch (IOException e) {
+                        LOG.error("Failed to read shard {}", shard, e);
+                    }
+                });
+            }
+            pool.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading shards");
+        }
+        shardsElapsed = System.nanoTime() - start;
+    }
+
+    /** @return true if input files or ranges are read concurrently */
+    protected boolean isSharded() {
+        return numShards > 1 || numSplits > 1;
+    }
+
+    private void readShard(Shard shard, ArchiveRecordProcessor proc) throws IOException {
+        shards.add(shard);
+        long start = System.nanoTime();
+        try {
+            if (shard.warcFileId >= 0) {
+                shard.records = readWarcFile(shard.path, shard.warcFileId, shard.start, shard.end, proc);
+            } else {
+                shard.records = readInput(shard.path, proc);
+            }
+        } catch (IOException | RuntimeException e) {
+            shard.failed = true;
+            throw e;
+        } finally {
+            shard.elapsed = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Input file or byte range of a WARC file read by
+     * {@link #readInputs(String[], ArchiveRecordProcessor)}
+     */
+    protected static class Shard {
+        public final String path;
+        /** ID of the opened WARC file if a range is read, -1 if the entire file is read */
+        public final int warcFileId;
+        public final long start;
+        public final long end;
+        /** range size in bytes */
+        public final long bytes;
+        public volatile int records;
+        /** time to read and process the shard in nanoseconds */
+        public volatile long elapsed;
+        public volatile boolean failed;
+
+        public Shard(String path, int warcFileId, long start, long end) {
+            this.path = path;
+            this.warcFileId = warcFileId;
+            this.start = start;
+            this.end = end;
+            this.bytes = end - start;
+        }
+
+        /** @return MiB per second */
+        public double throughput() {
+            return elapsed == 0 ? 0.0 : (bytes * 1000000000.0 / elapsed / 1048576);
+        }
+
+        @Override
+        public String toString() {
+            if (warcFileId < 0) {
+                return path;
+            }
+            return path + " [" + start + ", " + end + ")";
+        }
+    }
+
+    protected synchronized WorkerPool getWorkerPool() {
+        if (workers == null) {
+            LOG.info("Processing WARC records using {} worker threads", numThreads);
+            workers = new WorkerPool("worker", numThreads, 4 * numThreads);
+            if (maxInflightBytes > 0) {
+                long oversize = Long.getLong("warc.inflight.oversize", maxInflightBytes / numThreads);
+                LOG.info("Payloads in flight limited to {} bytes, payloads larger than {} bytes are parsed one by one",
+                        maxInflightBytes, oversize);
+                workers.setByteBudget(new ByteBudget(maxInflightBytes), oversize);
+            }
+        }
+        return workers;
+    }
+
+    /**
+     * Task processing a payload held in memory. The payload size counts
+     * against the byte budget of the worker pool (<code>warc.inflight.maxBytes</code>).
+     */
+    protected static class PayloadTask implements Runnable {
+        public final long bytes;
+        private final Runnable task;
+
+        public PayloadTask(long bytes, Runnable task) {
+            this.bytes = bytes;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        /** @return the payload size of a payload task, 0 for other tasks */
+        public static long getBytes(Runnable task) {
+            return task instanceof PayloadTask ? ((PayloadTask) task).bytes : 0;
+        }
+    }
+
+    /**
+     * Index the response records of all WARC files. If
+     * <code>warc.index.sidecar</code> is true, the index of every WARC file is
+     * loaded from its sidecar file, or written to it if the sidecar file does
+     * not exist or is outdated. WARC files exceeding the limits of the sidecar
+     * format are indexed in memory.
+     */
+    public void indexWarcFiles(String[] warcPaths) throws IOException {
+        long start = System.currentTimeMillis();
+        if (indexSidecar) {
+            MultiRecordIndex index = new MultiRecordIndex();
+            for (String warcPath : warcPaths) {
+                int warcId = warcFiles.size();
+                RecordIndex fileIndex = MappedRecordIndex.open(warcPath, warcId);
+                if (fileIndex != null) {
+                    openWarcFile(warcPath);
+                    LOG.info("Loaded sidecar index of {} ({} records)", warcPath, fileIndex.size());
+                } else {
+                    InMemoryRecordIndex memIndex = new InMemoryRecordIndex();
+                    readWarcFile(warcPath, new ArchiveRecordIndexer(warcId, memIndex));
+                    fileIndex = memIndex;
+                    if (MappedRecordIndex.write(warcPath, memIndex, warcId)) {
+                        fileIndex = MappedRecordIndex.open(warcPath, warcId);
+                    }
+                }
+                index.add(fileIndex);
+            }
+            records = index;
+        } else {
+            InMemoryRecordIndex index = new InMemoryRecordIndex();
+            ArchiveRecordIndexer proc = new ArchiveRecordIndexer(0, index);
+            for (String warcPath : warcPaths) {
+                proc.setWarcId(warcFiles.size());
+                readWarcFile(warcPath, proc);
+            }
+            records = index;
+        }
+        processedRecords = new ConcurrentBitSet(records.size());
+        LOG.info("Indexed {} WARC response records in {} ms, index size approx. {} bytes", records.size(),
+                (System.currentTimeMillis() - start), records.estimateMemory());
+    }
+
+    /**
+     * Copy a document which exceeded the time budget into the quarantine WARC
+     * file (<code>warc.parse.quarantine</code>). Records read from WARC files
+     * are copied as is, documents of a payload corpus are written as response
+     * records holding the decoded payload.
+     */
+    protected void quarantine(String url, Record record, byte[] content) {
+        if (quarantinePath == null) {
+            return;
+        }
+        try {
+            synchronized (this) {
+                if (quarantine == null) {
+                    quarantine = new QuarantineWriter(quarantinePath);
+                }
+            }
+            if (record.offset >= 0 && !(record instanceof CorpusRecord)) {
+                quarantine.write(warcRecordReader.read(record.warcFileId, record.offset));
+            } else {
+                quarantine.write(url, record.contentType, content != null ? content : record.getContent());
+            }
+            LOG.info("Copied {} to quarantine file {}", url, quarantinePath);
+        } catch (IOException e) {
+            LOG.error("Failed to copy {} to quarantine file {}", url, quarantinePath, e);
+        }
+    }
+
+    /** Shut down the watchdog and close the quarantine file */
+    protected void closeWatchdog() throws IOException {
+        if (watchdog != null) {
+            watchdog.close();
+        }
+        if (quarantine != null) {
+            quarantine.close();
+        }
+    }
+
+    /**
+     * Release the resources held after a run: worker threads, watchdog,
+     * quarantine file and the file channels of the WARC files. The counters
+     * remain readable.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (workers != null) {
+                workers.close();
+                workers = null;
+            }
+        }
+        closeWatchdog();
+        warcRecordReader.close();
+    }
+
+    /**
+     * Publish the counters as platform MBean
+     * <code>crawlercommons:type=&lt;class name&gt;</code> if
+     * <code>report.jmx</code> is true.
+     * 
+     * @return the MBean, to be closed when finished, or null if not published
+     */
+    protected CounterMetrics publishMetrics(Counter counter) {
+        if (!publishMetrics) {
+            return null;
+        }
+        try {
+            return new CounterMetrics("crawlercommons:type=" + getClass().getSimpleName(), counter::metrics,
+                    counter.rateMetrics(), metricsWindow);
+        } catch (JMException e) {
+            LOG.warn("Failed to register MBean", e);
+            return null;
         }
     }
 
     public Record getRecord(String url) {
-        return records.get(url);
+        int id = records.getId(url);
+        if (id < 0) {
+            return null;
+        }
+        return new Record(id);
+    }
+
+    public Record getRecord(int indexId) {
+        return new Record(indexId);
     }
 
     protected interface ArchiveRecordProcessor {
@@ -173,10 +815,46 @@ public abstract class WarcTestProcessor {
         }
     }
 
+    /**
+     * Record processor which splits the processing into two steps: reading the
+     * record payload (must be done on the reader thread) and a task processing
+     * the payload which can be run by a worker thread.
+     */
+    protected interface ParallelArchiveRecordProcessor extends ArchiveRecordProcessor {
+
+        /**
+         * Read the record and return the task to process it.
+         * 
+         * @return task or null if the record is skipped
+         */
+        public Runnable prepare(WarcRecord record, long offset);
+
+        @Override
+        public default void process(WarcRecord record, long offset) {
+            Runnable task = prepare(record, offset);
+            if (task != null) {
+                task.run();
+            }
+        }
+    }
+
+    /** Processor of the records of a {@link PayloadCorpus} */
+    protected interface CorpusRecordProcessor {
+
+        /**
+         * Return the task to process the record.
+         * 
+         * @return task or null if the record is skipped
+         */
+        public Runnable prepare(CorpusRecord record);
+    }
+
     protected class ArchiveRecordIndexer implements ArchiveRecordProcessor {
         private int warcId;
-        public ArchiveRecordIndexer(int warcId) {
+        private InMemoryRecordIndex index;
+        public ArchiveRecordIndexer(int warcId, InMemoryRecordIndex index) {
             this.warcId = warcId;
+            this.index = index;
         }
         public void setWarcId(int warcId) {
             this.warcId = warcId;
@@ -189,35 +867,306 @@ public abstract class WarcTestProcessor {
             String url = ((WarcTargetRecord) record).target();
             try {
                 Record warcRecord = new Record((WarcResponse) record, offset);
-                warcRecord.warcFileId = this.warcId;
-                records.put(url, warcRecord);
+                index.put(url, this.warcId, offset, warcRecord.status, warcRecord.contentType);
             } catch(IOException e) {
                 LOG.error("Failed to process WARC record " + url, e);
-                records.put(url, null);
             }
         }
     }
 
+    /**
+     * Counters are updated concurrently by worker threads, {@link LongAdder}s
+     * keep the totals exact without contention. Processing times are
+     * measured in nanoseconds and recorded in latency histograms.
+     */
     protected class Counter {
-        public int processed = 0;
-        public int failedFetch = 0;
-        public int success = 0;
-        public long elapsed = 0;
+        public final LongAdder processed = new LongAdder();
+        public final LongAdder failedFetch = new LongAdder();
+        public final LongAdder success = new LongAdder();
+        /** processing time in nanoseconds */
+        public final LongAdder elapsed = new LongAdder();
+        /** wall time of the test run in milliseconds, set when finished */
+        public volatile long wallMillis = 0;
+        /** latency histograms by document type, payload size, etc. */
+        public final Map<String,LatencyHistogram> latency = new ConcurrentHashMap<>();
+
+        /** file to write the latency histograms to */
+        protected String histogramFile = System.getProperty("report.histograms");
+        /** number of shards with the lowest throughput to be logged */
+        protected int topShards = Integer.getInteger("report.shards.top", 20);
+
+        /** bytes allocated while parsing, measured per thread */
+        public final LongAdder allocated = new LongAdder();
+        public final LongAdder allocationMeasured = new LongAdder();
+        /** payload bytes passed to the parser */
+        public final LongAdder inputBytes = new LongAdder();
+        public final TopN topAllocations = new TopN(Integer.getInteger("report.allocations.top", 10));
+
+        public void increment(Map<String,LongAdder> counts, String key) {
+            counts.computeIfAbsent(key, k -> new LongAdder()).increment();
+        }
+
+        public void recordLatency(String key, long nanos) {
+            latency.computeIfAbsent(key, k -> new LatencyHistogram()).record(nanos);
+        }
+
+        /**
+         * @param bytes
+         *            bytes allocated while parsing the document, -1 if not
+         *            measured
+         */
+        public void recordAllocation(String url, long inputLength, long bytes) {
+            inputBytes.add(inputLength);
+            if (bytes < 0) {
+                return;
+            }
+            allocated.add(bytes);
+            allocationMeasured.increment();
+            topAllocations.offer(bytes, url);
+        }
+
+        /** @return label of the payload size bucket */
+        public String sizeBucket(long bytes) {
+            if (bytes < 1024) {
+                return "size <1k";
+            } else if (bytes < 10240) {
+                return "size 1k-10k";
+            } else if (bytes < 102400) {
+                return "size 10k-100k";
+            } else if (bytes < 1048576) {
+                return "size 100k-1M";
+            } else if (bytes < 10485760) {
+                return "size 1M-10M";
+            }
+            return "size >=10M";
+        }
+
+        protected String f(LongAdder n) {
+            return f(n.sum());
+        }
 
         protected String f(long n) {
             return String.format(Locale.ROOT, "%8d", n);
         }
 
+        protected String fPercent(LongAdder n, LongAdder N) {
+            return fPercent(n.sum(), N.sum());
+        }
+
         protected String fPercent(long n, long N) {
             return String.format(Locale.ROOT, "%6.2f%%", 100.0 * n / N);
         }
 
+        /** format nanoseconds as microseconds */
+        protected String fMicros(long nanos) {
+            return String.format(Locale.ROOT, "%10.1f", nanos / 1000.0);
+        }
+
+        /**
+         * Snapshot of the counters published as MBean attributes. Latency
+         * percentiles are computed over all documents processed so far.
+         */
+        public Map<String,Number> metrics() {
+            Map<String,Number> metrics = new LinkedHashMap<>();
+            metrics.put("documentsProcessed", processed.sum());
+            metrics.put("documentsSucceeded", success.sum());
+            metrics.put("documentsFailedToFetch", failedFetch.sum());
+            metrics.put("inputBytes", inputBytes.sum());
+            metrics.put("elapsedMillis", elapsed.sum() / 1000000);
+            if (wallMillis > 0) {
+                metrics.put("wallMillis", wallMillis);
+            }
+            if (watchdog != null) {
+                metrics.put("documentsAbandoned", watchdog.abandoned.sum());
+            }
+            metrics.put("allocatedBytes", allocated.sum());
+            LatencyHistogram all = latency.get("all");
+            if (all != null) {
+                metrics.put("latencyP50Micros", all.getValueAtPercentile(50.0) / 1000.0);
+                metrics.put("latencyP90Micros", all.getValueAtPercentile(90.0) / 1000.0);
+                metrics.put("latencyP99Micros", all.getValueAtPercentile(99.0) / 1000.0);
+                metrics.put("latencyP999Micros", all.getValueAtPercentile(99.9) / 1000.0);
+                metrics.put("latencyMaxMicros", all.getMax() / 1000.0);
+            }
+            ByteBudget budget = workers == null ? null : workers.getByteBudget();
+            if (budget != null) {
+                metrics.put("inflightBytes", budget.getUsed());
+                metrics.put("inflightBlockedMillis", budget.getBlockedNanos() / 1000000);
+            }
+            return metrics;
+        }
+
+        /** @return keys of the metrics published also as rate per second */
+        public String[] rateMetrics() {
+            return new String[] { "documentsProcessed", "inputBytes" };
+        }
+
         public void log(Logger log) {
             log.info("{}\tdocuments processed total", f(processed));
             log.info("{}\tsuccessfully processed", f(success));
-            log.info("{}\tfailed to process", f(processed - success));
+            log.info("{}\tfailed to process", f(processed.sum() - success.sum()));
             log.info("{}\tfailed to fetch document", f(failedFetch));
-            log.info("{}\ttotal time elapsed", f(elapsed));
+            log.info("{}\ttotal time elapsed", f(elapsed.sum() / 1000000));
+            if (watchdog != null) {
+                log.info("{}\tdocuments abandoned (time budget of {} ms exceeded)", f(watchdog.abandoned),
+                        watchdog.getTimeoutMillis());
+                log.info("{}\tabandoned parses still running", f(watchdog.getStillRunning()));
+                if (quarantine != null) {
+                    log.info("{}\tdocuments copied to quarantine file {}", f(quarantine.getRecords()), quarantinePath);
+                }
+            }
+        }
+
+        public void logLatency(Logger log) {
+            log.info("Latency (microseconds):");
+            log.info("   count\t       p50       p90       p99     p99.9       max");
+            for (Map.Entry<String,LatencyHistogram> e : new TreeMap<>(latency).entrySet()) {
+                LatencyHistogram h = e.getValue();
+                log.info("{}\t{}{}{}{}{}\t{}", f(h.getCount()), fMicros(h.getValueAtPercentile(50.0)),
+                        fMicros(h.getValueAtPercentile(90.0)), fMicros(h.getValueAtPercentile(99.0)),
+                        fMicros(h.getValueAtPercentile(99.9)), fMicros(h.getMax()), e.getKey());
+            }
+        }
+
+        protected String fRatio(long n, long N) {
+            return String.format(Locale.ROOT, "%10.1f", N == 0 ? 0.0 : ((double) n / N));
+        }
+
+        /** format n per second, computed in floating point to avoid overflows */
+        protected String fPerSecond(double n, long nanos) {
+            return String.format(Locale.ROOT, "%10.1f", nanos == 0 ? 0.0 : (n * 1000000000.0 / nanos));
+        }
+
+        public void logAllocation(Logger log) {
+            if (!AllocationMeter.isSupported()) {
+                log.info("Allocation accounting not supported by JVM");
+                return;
+            }
+            log.info("{}\tbytes allocated while parsing", f(allocated));
+            log.info("{}\tbytes allocated per document", fRatio(allocated.sum(), allocationMeasured.sum()));
+            log.info("{}\tbytes allocated per input byte", fRatio(allocated.sum(), inputBytes.sum()));
+            List<TopN.Entry> top = topAllocations.get();
+            if (!top.isEmpty()) {
+                log.info("Documents with most bytes allocated:");
+                for (TopN.Entry e : top) {
+                    log.info("{}\t{}", f(e.value), e.key);
+                }
+            }
+        }
+
+        /**
+         * Log the time spent per phase: total, per document, per payload byte
+         * passed to the parser and the share of the wall time.
+         */
+        public void logPhases(Logger log) {
+            if (phases == null) {
+                return;
+            }
+            long wall = phases.getWallNanos();
+            long bytes = inputBytes.sum();
+            long sum = 0;
+            log.info("Time per phase:");
+            log.info("      ms\t     count       ns/call   ns/byte   %wall");
+            for (Phase phase : Phase.values()) {
+                long nanos = phases.getNanos(phase);
+                long count = phases.getCount(phase);
+                if (count == 0) {
+                    continue;
+                }
+                sum += nanos;
+                log.info("{}\t{}", fPhase(nanos, count, bytes, wall), phase.label);
+            }
+            log.info("{}\ttotal (all phases)", fPhase(sum, 0, bytes, wall));
+            log.info("{}\twall time (ms), other or idle: {}", f(wall / 1000000),
+                    sum > wall ? "n/a (phases run concurrently)" : fPercent(wall - sum, wall).trim());
+        }
+
+        /**
+         * Log the throughput of the input files (shards), slowest shards
+         * first, and the speed-up gained by reading shards concurrently.
+         */
+        public void logShards(Logger log) {
+            if (shards.size() <= 1) {
+                return;
+            }
+            List<Shard> sorted = new ArrayList<>(shards);
+            sorted.sort(Comparator.comparingDouble(Shard::throughput));
+            long bytes = 0, records = 0, elapsed = 0, failed = 0;
+            for (Shard shard : sorted) {
+                bytes += shard.bytes;
+                records += shard.records;
+                elapsed += shard.elapsed;
+                if (shard.failed) {
+                    failed++;
+                }
+            }
+            log.info("{}\tshards (input files or ranges) read", f(sorted.size()));
+            log.info("{}\tshards failed", f(failed));
+            log.info("{}\tMiB read", f(bytes >> 20));
+            log.info("{}\tMiB/s total throughput (wall time)", fPerSecond(bytes / 1048576.0, shardsElapsed));
+            log.info("{}\trecords/s total throughput (wall time)", fPerSecond(records, shardsElapsed));
+            log.info("{}\tspeed-up (sum of shard times / wall time)", fRatio(elapsed, shardsElapsed));
+            log.info("Shards with lowest throughput:");
+            log.info("   MiB/s\t records/s\t      ms\tshard");
+            for (Shard shard : sorted.subList(0, Math.min(topShards, sorted.size()))) {
+                log.info("{}\t{}\t{}\t{}{}", String.format(Locale.ROOT, "%8.1f", shard.throughput()),
+                        fPerSecond(shard.records, shard.elapsed), f(shard.elapsed / 1000000), shard,
+                        shard.failed ? " (failed)" : "");
+            }
+        }
+
+        /**
+         * Log the peak bytes of payloads in flight between the reader and the
+         * worker threads and the time the reader was blocked.
+         */
+        public void logInflight(Logger log) {
+            ByteBudget budget = workers == null ? null : workers.getByteBudget();
+            if (budget == null) {
+                return;
+            }
+            log.info("{}\tbytes in flight: budget", f(budget.getCapacity()));
+            log.info("{}\tbytes in flight: peak", f(budget.getPeak()));
+            log.info("{}\treader blocked by budget or oversize lane", f(budget.getBlocked()));
+            log.info("{}\treader blocked (ms)", f(budget.getBlockedNanos() / 1000000));
+            log.info("{}\toversize payloads parsed in oversize lane", f(workers.getOversizeTasks()));
+        }
+
+        private String fPhase(long nanos, long count, long bytes, long wall) {
+            String perCall = count == 0 ? "" : String.format(Locale.ROOT, "%.1f", (double) nanos / count);
+            return String.format(Locale.ROOT, "%8d\t%10s %13s %9.2f %6.2f%%", nanos / 1000000,
+                    count == 0 ? "" : Long.toString(count), perCall, bytes == 0 ? 0.0 : ((double) nanos / bytes),
+                    wall == 0 ? 0.0 : (100.0 * nanos / wall));
+        }
+
+        public void writeHistograms(String path) throws IOException {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(path), StandardCharsets.UTF_8))) {
+                out.println("# latency histograms, values in nanoseconds");
+                for (Map.Entry<String,LatencyHistogram> e : new TreeMap<>(latency).entrySet()) {
+                    e.getValue().write(out, e.getKey());
+                }
+            }
+        }
+
+        /**
+         * Log counters, latency percentiles, allocations, the time per phase,
+         * the throughput per shard and the payloads in flight, write latency
+         * histograms if <code>report.histograms</code> is set.
+         */
+        public void report(Logger log) {
+            log(log);
+            logLatency(log);
+            logAllocation(log);
+            logPhases(log);
+            logShards(log);
+            logInflight(log);
+            if (histogramFile != null) {
+                try {
+                    writeHistograms(histogramFile);
+                    log.info("Latency histograms written to {}", histogramFile);
+                } catch (IOException e) {
+                    log.error("Failed to write latency histograms to {}", histogramFile, e);
+                }
+            }
         }
     }
 
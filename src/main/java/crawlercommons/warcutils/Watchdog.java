@@ -0,0 +1,146 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enforces a time budget per document. The parse runs on a thread of the
+ * watchdog while the calling thread waits at most for the time budget. If the
+ * budget is exceeded, the parse is abandoned: the parsing thread is
+ * interrupted and the caller continues with the next document. Because parsers
+ * do not check for interrupts, an abandoned parse usually runs until it is
+ * finished, on a daemon thread which does not keep the JVM alive. A new thread
+ * is started for the next document.
+ *
+ * Allocations are measured on the parsing thread and are available to the
+ * calling thread after the call returned.
+ */
+public class Watchdog implements AutoCloseable {
+
+    private final long timeoutNanos;
+    private final ExecutorService executor;
+    private final ThreadLocal<Long> allocated = ThreadLocal.withInitial(() -> -1L);
+
+    /** documents abandoned because the time budget was exceeded */
+    public final LongAdder abandoned = new LongAdder();
+    /** abandoned parses not yet finished */
+    private final AtomicInteger stillRunning = new AtomicInteger();
+
+    public Watchdog(long timeoutMillis) {
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        AtomicInteger threadId = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "watchdog-parse-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public long getTimeoutMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(timeoutNanos);
+    }
+
+    /**
+     * Run a task within the time budget.
+     *
+     * @return the result of the task
+     * @throws TimeoutException
+     *             if the time budget is exceeded and the task was abandoned
+     * @throws Exception
+     *             thrown by the task
+     */
+    public <T> T call(Callable<T> task) throws Exception {
+        long[] bytes = { -1 };
+        // state of the task: 0 running, 1 finished, 2 abandoned
+        int[] state = { 0 };
+        Future<T> future = executor.submit(() -> {
+            long start = AllocationMeter.allocatedBytes();
+            try {
+                return task.call();
+            } finally {
+                bytes[0] = AllocationMeter.allocatedSince(start);
+                synchronized (state) {
+                    if (state[0] == 2) {
+                        stillRunning.decrementAndGet();
+                    }
+                    state[0] = 1;
+                }
+            }
+        });
+        try {
+            try {
+                return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                boolean abandon;
+                synchronized (state) {
+                    abandon = (state[0] == 0);
+                    if (abandon) {
+                        state[0] = 2;
+                        stillRunning.incrementAndGet();
+                    }
+                }
+                if (abandon) {
+                    future.cancel(true);
+                    abandoned.increment();
+                    bytes[0] = -1;
+                    throw e;
+                }
+                // finished just in time
+                return future.get();
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            allocated.set(bytes[0]);
+        }
+    }
+
+    /**
+     * @return bytes allocated by the last task run by the calling thread, -1 if
+     *         not measured or abandoned
+     */
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    /** @return number of abandoned parses still running */
+    public int getStillRunning() {
+        return stillRunning.get();
+    }
+
+    /** Shut down the watchdog, abandoned parses are not waited for. */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fixed pool of worker threads fed by a single producer (the WARC reader
+ * thread). The number of tasks in flight (queued or running) is bounded, the
+ * producer blocks in {@link #submit(Runnable)} until a slot becomes free.
+ * Optionally, the bytes held by the tasks in flight are bounded by a
+ * {@link ByteBudget}, see {@link #submit(Runnable, long)}.
+ */
+public class WorkerPool implements AutoCloseable {
+
+    private static Logger LOG = LoggerFactory.getLogger(WorkerPool.class);
+
+    private final ExecutorService executor;
+    private final Semaphore slots;
+    private final int maxTasks;
+    private final String name;
+
+    /** budget of bytes held by the tasks in flight, null if not limited */
+    private ByteBudget budget;
+    /** tasks holding more bytes are run one by one in the oversize lane */
+    private long oversizeBytes;
+    private WorkerPool oversizeLane;
+    private final LongAdder oversizeTasks = new LongAdder();
+
+    public WorkerPool(String name, int threads, int maxTasks) {
+        AtomicInteger threadId = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, (Runnable r) -> {
+            Thread t = new Thread(r, name + "-" + threadId.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.maxTasks = maxTasks;
+        this.slots = new Semaphore(maxTasks);
+        this.name = name;
+    }
+
+    /**
+     * Bound the bytes held by tasks in flight. Tasks holding more than
+     * <code>oversizeBytes</code> are not counted against the budget but are
+     * run one after the other by a dedicated thread (the oversize lane).
+     */
+    public synchronized void setByteBudget(ByteBudget budget, long oversizeBytes) {
+        this.budget = budget;
+        this.oversizeBytes = oversizeBytes;
+        if (oversizeLane == null) {
+            oversizeLane = new WorkerPool(name + "-oversize", 1, 1);
+        }
+    }
+
+    public ByteBudget getByteBudget() {
+        return budget;
+    }
+
+    /** @return number of tasks run by the oversize lane */
+    public long getOversizeTasks() {
+        return oversizeTasks.sum();
+    }
+
+    /**
+     * Submit a task holding the given number of bytes (e.g., a payload to be
+     * parsed), blocking while the maximum number of tasks is in flight or
+     * the byte budget is exhausted, resp. while the oversize lane is busy.
+     */
+    public void submit(Runnable task, long bytes) throws InterruptedException {
+        if (budget == null) {
+            submit(task);
+            return;
+        }
+        if (bytes > oversizeBytes) {
+            oversizeTasks.increment();
+            boolean busy = oversizeLane.slots.availablePermits() == 0;
+            long start = System.nanoTime();
+            oversizeLane.submit(task);
+            if (busy) {
+                budget.recordBlocked(System.nanoTime() - start);
+            }
+            return;
+        }
+        budget.acquire(bytes);
+        try {
+            submit(() -> {
+                try {
+                    task.run();
+                } finally {
+                    budget.release(bytes);
+                }
+            });
+        } catch (InterruptedException | RuntimeException e) {
+            budget.release(bytes);
+            throw e;
+        }
+    }
+
+    /**
+     * Submit a task, blocking while the maximum number of tasks is in flight.
+     */
+    public void submit(Runnable task) throws InterruptedException {
+        slots.acquire();
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    LOG.error("Task failed", e);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /** Wait until all submitted tasks are finished. */
+    public void awaitCompletion() throws InterruptedException {
+        slots.acquire(maxTasks);
+        slots.release(maxTasks);
+        if (oversizeLane != null) {
+            oversizeLane.awaitCompletion();
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        if (oversizeLane != null) {
+            oversizeLane.close();
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.robots;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactRobotRulesStoreTest {
+
+    private static final String ROBOTS_TXT = "User-agent: *\n" //
+                    + "Disallow: /private/\n" //
+                    + "Allow: /private/public.html\n" //
+                    + "Disallow: /*.pdf$\n" //
+                    + "Crawl-delay: 5\n" //
+                    + "Sitemap: https://www.example.org/sitemap.xml\n";
+
+    private static final List<String> PATHS = List.of("/", "/index.html", "/private/", "/private/secret.html", "/private/public.html", "/doc.pdf",
+                    "/doc.pdf?download=1");
+
+    private static BaseRobotRules parse(String host, String content) {
+        return new SimpleRobotRulesParser().parseContent("https://" + host + "/robots.txt", content.getBytes(StandardCharsets.UTF_8), "text/plain",
+                        List.of("mybot"));
+    }
+
+    @Test
+    public void testSameDecisions() {
+        CompactRobotRulesStore store = new CompactRobotRulesStore(16);
+        BaseRobotRules rules = parse("www.example.org", ROBOTS_TXT);
+        store.put("https://www.example.org", rules);
+        BaseRobotRules stored = store.get("https://www.example.org");
+        for (String path : PATHS) {
+            String url = "https://www.example.org" + path;
+            assertEquals(rules.isAllowed(url), stored.isAllowed(url), url);
+        }
+        assertEquals(rules.getCrawlDelay(), stored.getCrawlDelay());
+        assertTrue(stored.getSitemaps().isEmpty());
+        assertNull(store.get("https://www.example.com"));
+    }
+
+    @Test
+    public void testAllowAllAndNone() {
+        CompactRobotRulesStore store = new CompactRobotRulesStore(16);
+        store.put("https://all.example.org", new SimpleRobotRules(SimpleRobotRules.RobotRulesMode.ALLOW_ALL));
+        store.put("https://none.example.org", new SimpleRobotRules(SimpleRobotRules.RobotRulesMode.ALLOW_NONE));
+        store.put("https://empty.example.org", parse("empty.example.org", "User-agent: *\nDisallow:\n"));
+        store.put("https://root.example.org", parse("root.example.org", "User-agent: *\nDisallow: /\n"));
+        assertEquals(4, store.numRuleSets());
+        assertTrue(store.get("https://all.example.org").isAllowAll());
+        assertTrue(store.get("https://none.example.org").isAllowNone());
+        assertFalse(store.get("https://none.example.org").isAllowed("https://none.example.org/any"));
+        assertTrue(store.get("https://empty.example.org").isAllowed("https://empty.example.org/any"));
+        assertFalse(store.get("https://root.example.org").isAllowed("https://root.example.org/any"));
+    }
+
+    @Test
+    public void testDeduplication() {
+        CompactRobotRulesStore store = new CompactRobotRulesStore(16);
+        for (int i = 0; i < 100; i++) {
+            String host = "host" + i + ".example.org";
+            store.put("https://" + host, parse(host, ROBOTS_TXT));
+        }
+        assertEquals(100, store.numHosts());
+        assertEquals(1, store.numRuleSets());
+        assertSame(store.get("https://host0.example.org"), store.get("https://host99.example.org"));
+        assertTrue(store.estimateMemory() < store.estimateRawMemory());
+    }
+
+}
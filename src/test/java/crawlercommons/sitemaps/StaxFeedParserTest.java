@@ -0,0 +1,213 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.sitemaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Verify that {@link StaxFeedParser} extracts the same URLs and dates as the
+ * ROME-based {@link FeedParserPerformanceTest.FeedParser}.
+ */
+public class StaxFeedParserTest {
+
+    private static final String RSS_20 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n" //
+                    + "<channel><title>News</title><link>https://www.example.org/</link><description>News</description>\n" //
+                    + "  <pubDate>Mon, 01 Jan 2024 00:00:00 GMT</pubDate>\n" //
+                    + "  <item><title>A</title><link>https://www.example.org/news/a</link>\n" //
+                    + "    <pubDate>Tue, 02 Jan 2024 10:00:00 GMT</pubDate></item>\n" //
+                    + "  <item><title>B</title><link> https://www.example.org/news/b </link></item>\n" //
+                    + "  <item><title>C</title><link>/news/c</link>\n" //
+                    + "    <pubDate>Wed, 03 Jan 2024 10:00:00 +0100</pubDate></item>\n" //
+                    + "</channel></rss>\n";
+
+    private static final String RSS_10 = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rdf:RDF xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"\n" //
+                    + "         xmlns=\"http://purl.org/rss/1.0/\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n" //
+                    + "  <channel rdf:about=\"https://www.example.org/rss.rdf\"><title>News</title>\n" //
+                    + "    <link>https://www.example.org/</link><description>News</description>\n" //
+                    + "    <items><rdf:Seq><rdf:li rdf:resource=\"https://www.example.org/news/a\"/>\n" //
+                    + "      <rdf:li rdf:resource=\"https://www.example.org/news/b\"/></rdf:Seq></items>\n" //
+                    + "  </channel>\n" //
+                    + "  <item rdf:about=\"https://www.example.org/news/a\"><title>A</title>\n" //
+                    + "    <link>https://www.example.org/news/a</link><dc:date>2024-01-02T10:00:00Z</dc:date></item>\n" //
+                    + "  <item rdf:about=\"https://www.example.org/news/b\"><title>B</title>\n" //
+                    + "    <link>https://www.example.org/news/b</link></item>\n" //
+                    + "</rdf:RDF>\n";
+
+    private static final String RSS_GUID = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rss version=\"2.0\"><channel><title>News</title><link>https://www.example.org/</link>\n" //
+                    + "  <description>News</description>\n" //
+                    + "  <item><title>A</title><guid>https://www.example.org/news/a</guid></item>\n" //
+                    + "  <item><title>B</title><guid isPermaLink=\"false\">https://www.example.org/news/b</guid></item>\n" //
+                    + "  <item><title>C</title><link>https://www.example.org/news/c</link>\n" //
+                    + "    <guid>https://www.example.org/news/c-guid</guid></item>\n" //
+                    + "  <item><title>D</title><description>no link, no guid</description></item>\n" //
+                    + "</channel></rss>\n";
+
+    private static final String RSS_DATES = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n" //
+                    + "<channel><title>News</title><link>https://www.example.org/</link><description>News</description>\n" //
+                    + "  <item><link>https://www.example.org/news/a</link>\n" //
+                    + "    <pubDate>Tue, 02 Jan 2024 10:00:00 GMT</pubDate><dc:date>2024-02-02T10:00:00Z</dc:date></item>\n" //
+                    + "  <item><link>https://www.example.org/news/b</link>\n" //
+                    + "    <dc:date>2024-02-03T10:00:00+02:00</dc:date><pubDate>Wed, 03 Jan 2024 10:00:00 GMT</pubDate></item>\n" //
+                    + "  <item><link>https://www.example.org/news/c</link><dc:date>2024-02-04</dc:date></item>\n" //
+                    + "</channel></rss>\n";
+
+    private static final String RSS_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rss version=\"2.0\"><channel><title>News</title><link>https://www.example.org/</link>\n" //
+                    + "  <description>News</description>\n" //
+                    + "  <item><title>A</title><source url=\"https://www.example.com/feed.xml\">Other</source>\n" //
+                    + "    <link>https://www.example.org/news/a</link></item>\n" //
+                    + "</channel></rss>\n";
+
+    private static final String ATOM_LINKS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>News</title>\n" //
+                    + "  <id>urn:uuid:feed</id><updated>2024-01-01T00:00:00Z</updated>\n" //
+                    + "  <link rel=\"self\" href=\"https://www.example.org/atom.xml\"/>\n" //
+                    + "  <entry><title>A</title><id>urn:uuid:a</id><updated>2024-01-02T10:00:00Z</updated>\n" //
+                    + "    <link rel=\"self\" href=\"https://www.example.org/news/a.atom\"/>\n" //
+                    + "    <link rel=\"alternate\" type=\"text/html\" href=\"https://www.example.org/news/a\"/>\n" //
+                    + "    <link rel=\"alternate\" type=\"text/plain\" href=\"https://www.example.org/news/a.txt\"/></entry>\n" //
+                    + "  <entry><title>B</title><id>urn:uuid:b</id><published>2024-01-03T10:00:00Z</published>\n" //
+                    + "    <link href=\"https://www.example.org/news/b\"/></entry>\n" //
+                    + "  <entry><title>C</title><id>https://www.example.org/news/c</id>\n" //
+                    + "    <updated>2024-01-05T10:00:00+01:00</updated><published>2024-01-04T10:00:00Z</published>\n" //
+                    + "    <link rel=\"enclosure\" href=\"https://www.example.org/news/c.mp3\"/>\n" //
+                    + "    <link rel=\"related\" href=\"https://www.example.com/\"/></entry>\n" //
+                    + "</feed>\n";
+
+    private static final String ATOM_SOURCE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>News</title>\n" //
+                    + "  <id>urn:uuid:feed</id><updated>2024-01-01T00:00:00Z</updated>\n" //
+                    + "  <entry><title>A</title>\n" //
+                    + "    <source><id>https://www.example.com/feed</id><updated>2023-12-01T00:00:00Z</updated>\n" //
+                    + "      <link href=\"https://www.example.com/\"/><title>Other</title></source>\n" //
+                    + "    <id>https://www.example.org/news/a</id><updated>2024-01-02T10:00:00Z</updated></entry>\n" //
+                    + "  <entry><title>B</title><link href=\"https://www.example.org/news/b\"/>\n" //
+                    + "    <source><link href=\"https://www.example.com/b\"/><updated>2023-12-02T00:00:00Z</updated></source>\n" //
+                    + "    <id>urn:uuid:b</id><published>2024-01-03T10:00:00Z</published></entry>\n" //
+                    + "</feed>\n";
+
+    private static final String RSS_LATIN1 = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n" //
+                    + "<rss version=\"2.0\"><channel><title>Neuigkeiten für Käse</title>\n" //
+                    + "  <link>https://www.example.org/</link><description>Käse</description>\n" //
+                    + "  <item><title>Käse</title><link>https://www.example.org/k%C3%A4se</link>\n" //
+                    + "    <pubDate>Tue, 02 Jan 2024 10:00:00 GMT</pubDate></item>\n" //
+                    + "  <item><title>Müsli</title><link>https://www.example.org/müsli</link></item>\n" //
+                    + "</channel></rss>\n";
+
+    /** @return map URL &rarr; last-modified date in seconds, resp. null */
+    private static Map<String,Long> urls(SiteMapParser parser, String feed, Charset charset) throws Exception {
+        AbstractSiteMap sitemap = parser.parseSiteMap(feed.getBytes(charset), new URL("https://www.example.org/feed.xml"));
+        Map<String,Long> urls = new TreeMap<>();
+        for (SiteMapURL u : ((SiteMap) sitemap).getSiteMapUrls()) {
+            Date lastMod = u.getLastModified();
+            urls.put(u.getUrl().toString(), lastMod == null ? null : lastMod.getTime() / 1000);
+        }
+        return urls;
+    }
+
+    /**
+     * Parse the feed with both parsers, verify the URLs and dates of the
+     * StAX-based parser and that the ROME-based parser returns the same.
+     */
+    private static void assertSameUrls(String feed, Charset charset, Map<String,Long> expected) throws Exception {
+        Map<String,Long> stax = urls(new StaxFeedParser(), feed, charset);
+        assertEquals(expected, stax, "StAX");
+        assertEquals(urls(new FeedParserPerformanceTest.FeedParser(), feed, charset), stax, "ROME vs. StAX");
+    }
+
+    private static long seconds(String isoDate) {
+        return OffsetDateTime.parse(isoDate).toEpochSecond();
+    }
+
+    private static Map<String,Long> map(Object... keyValues) {
+        Map<String,Long> map = new TreeMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], (Long) keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void testRss20() throws Exception {
+        assertSameUrls(RSS_20, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", seconds("2024-01-02T10:00:00Z"), //
+                        "https://www.example.org/news/b", null, //
+                        "https://www.example.org/news/c", seconds("2024-01-03T09:00:00Z")));
+    }
+
+    @Test
+    public void testRss10() throws Exception {
+        assertSameUrls(RSS_10, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", seconds("2024-01-02T10:00:00Z"), //
+                        "https://www.example.org/news/b", null));
+    }
+
+    @Test
+    public void testGuidFallback() throws Exception {
+        assertSameUrls(RSS_GUID, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", null, //
+                        "https://www.example.org/news/b", null, //
+                        "https://www.example.org/news/c", null));
+    }
+
+    @Test
+    public void testDcDateOverPubDate() throws Exception {
+        assertSameUrls(RSS_DATES, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", seconds("2024-02-02T10:00:00Z"), //
+                        "https://www.example.org/news/b", seconds("2024-02-03T08:00:00Z"), //
+                        "https://www.example.org/news/c", seconds("2024-02-04T00:00:00Z")));
+    }
+
+    @Test
+    public void testAtomLinks() throws Exception {
+        assertSameUrls(ATOM_LINKS, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", seconds("2024-01-02T10:00:00Z"), //
+                        "https://www.example.org/news/b", seconds("2024-01-03T10:00:00Z"), //
+                        "https://www.example.org/news/c", seconds("2024-01-05T09:00:00Z")));
+    }
+
+    @Test
+    public void testNestedSource() throws Exception {
+        assertSameUrls(RSS_SOURCE, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", null));
+        assertSameUrls(ATOM_SOURCE, StandardCharsets.UTF_8, map( //
+                        "https://www.example.org/news/a", seconds("2024-01-02T10:00:00Z"), //
+                        "https://www.example.org/news/b", seconds("2024-01-03T10:00:00Z")));
+    }
+
+    @Test
+    public void testEncodingDeclaration() throws Exception {
+        assertSameUrls(RSS_LATIN1, StandardCharsets.ISO_8859_1, map( //
+                        "https://www.example.org/k%C3%A4se", seconds("2024-01-02T10:00:00Z"), //
+                        "https://www.example.org/müsli", null));
+    }
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.sitemaps;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Verify that {@link StreamingSiteMapParser} passes the same URLs as
+ * {@link SiteMapParser} returns, for all sitemap formats.
+ */
+public class StreamingSiteMapParserTest {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<!-- comment before the root element -->\n" //
+                    + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n" //
+                    + "  <url><loc>https://www.example.org/</loc><lastmod>2024-01-01</lastmod></url>\n" //
+                    + "  <url><loc>\n    https://www.example.org/page?a=1&amp;b=2\n  </loc></url>\n" //
+                    + "  <url><loc>https://www.example.org/page</loc></url>\n" //
+                    + "  <url><loc>https://www.example.org/page</loc></url>\n" //
+                    + "  <url><loc>https://www.example.com/cross-submit</loc></url>\n" //
+                    + "  <url><loc>https://www.example.org/skip</loc></url>\n" //
+                    + "  <url><loc>http://[invalid/</loc></url>\n" //
+                    + "  <url><lastmod>2024-01-01</lastmod></url>\n" //
+                    + "  <url><loc>https://www.example.org/k%C3%A4se</loc><priority>0.5</priority></url>\n" //
+                    + "</urlset>\n";
+
+    private static final String TEXT = "﻿https://www.example.org/\n" //
+                    + "\n" //
+                    + "  https://www.example.org/page?a=1&b=2  \r\n" //
+                    + "https://www.example.org/page\n" //
+                    + "https://www.example.org/page\n" //
+                    + "https://www.example.com/cross-submit\n" //
+                    + "https://www.example.org/skip\n" //
+                    + "http://[invalid/\n" //
+                    + "https://www.example.org/k%C3%A4se";
+
+    private static final String INDEX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<sitemapindex xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n" //
+                    + "  <sitemap><loc>https://www.example.org/sitemap-1.xml</loc></sitemap>\n" //
+                    + "  <sitemap><loc>https://www.example.org/sitemap-2.xml</loc></sitemap>\n" //
+                    + "  <sitemap><loc>https://cdn.example.com/sitemap-3.xml</loc></sitemap>\n" //
+                    + "</sitemapindex>\n";
+
+    private static final String RSS = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<rss version=\"2.0\"><channel><title>News</title><link>https://www.example.org/</link>\n" //
+                    + "  <item><title>A</title><link>https://www.example.org/news/a</link></item>\n" //
+                    + "  <item><title>B</title><link>https://www.example.com/news/b</link></item>\n" //
+                    + "</channel></rss>\n";
+
+    private static final String ATOM = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" //
+                    + "<feed xmlns=\"http://www.w3.org/2005/Atom\"><title>News</title>\n" //
+                    + "  <link href=\"https://www.example.org/\"/>\n" //
+                    + "  <entry><title>A</title><link href=\"https://www.example.org/news/a\"/></entry>\n" //
+                    + "  <entry><title>B</title><link href=\"https://www.example.com/news/b\"/></entry>\n" //
+                    + "</feed>\n";
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    private static List<String> buffered(SiteMapParser parser, byte[] content, URL url) throws IOException, UnknownFormatException {
+        AbstractSiteMap sitemap = parser.parseSiteMap(content, url);
+        List<String> urls = new ArrayList<>();
+        if (sitemap.isIndex()) {
+            ((SiteMapIndex) sitemap).getSitemaps().forEach(s -> urls.add(s.getUrl().toString()));
+            urls.sort(null);
+        } else {
+            ((SiteMap) sitemap).getSiteMapUrls().forEach(u -> urls.add(u.getUrl().toString()));
+        }
+        return urls;
+    }
+
+    private static List<String> streamed(StreamingSiteMapParser parser, byte[] content, URL url) throws IOException, UnknownFormatException {
+        List<String> urls = new ArrayList<>();
+        AbstractSiteMap sitemap = parser.parse(new ByteArrayInputStream(content), url, u -> urls.add(u.getUrl().toString()));
+        if (sitemap.isIndex()) {
+            urls.sort(null);
+        }
+        return urls;
+    }
+
+    private static void assertSameUrls(boolean strict, byte[] content, String url, int expected) throws IOException, UnknownFormatException {
+        URL u = new URL(url);
+        List<String> urls = buffered(new SiteMapParser(strict, false), content, u);
+        assertEquals(expected, urls.size(), "URLs of " + url);
+        assertEquals(urls, streamed(new StreamingSiteMapParser(strict, false), content, u), url);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testXml(boolean strict) throws IOException, UnknownFormatException {
+        assertSameUrls(strict, bytes(XML), "https://www.example.org/sitemap.xml", strict ? 6 : 7);
+        assertSameUrls(strict, gzip(bytes(XML)), "https://www.example.org/sitemap.xml.gz", strict ? 6 : 7);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testText(boolean strict) throws IOException, UnknownFormatException {
+        assertSameUrls(strict, bytes(TEXT), "https://www.example.org/sitemap.txt", strict ? 6 : 7);
+        assertSameUrls(strict, gzip(bytes(TEXT)), "https://www.example.org/sitemap.txt.gz", strict ? 6 : 7);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testFeeds(boolean strict) throws IOException, UnknownFormatException {
+        assertSameUrls(strict, bytes(RSS), "https://www.example.org/rss.xml", strict ? 1 : 2);
+        assertSameUrls(strict, gzip(bytes(ATOM)), "https://www.example.org/atom.xml.gz", strict ? 1 : 2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { false, true })
+    public void testIndex(boolean strict) throws IOException, UnknownFormatException {
+        assertSameUrls(strict, bytes(INDEX), "https://www.example.org/sitemap-index.xml", 3);
+    }
+
+    @Test
+    public void testUrlFilter() throws IOException, UnknownFormatException {
+        Function<String,String> filter = u -> u.endsWith("/skip") ? null : u;
+        URL url = new URL("https://www.example.org/sitemap.xml");
+        for (byte[] content : new byte[][] { bytes(XML), bytes(TEXT), bytes(RSS) }) {
+            SiteMapParser parser = new SiteMapParser(false, false);
+            parser.setURLFilter(filter);
+            StreamingSiteMapParser streamingParser = new StreamingSiteMapParser(false, false);
+            streamingParser.setURLFilter(filter);
+            List<String> urls = streamed(streamingParser, content, url);
+            assertEquals(buffered(parser, content, url), urls);
+            assertFalse(urls.contains("https://www.example.org/skip"));
+        }
+    }
+
+    @Test
+    public void testStreamedSitemapIsEmpty() throws IOException, UnknownFormatException {
+        StreamingSiteMapParser parser = new StreamingSiteMapParser(false, false);
+        URL url = new URL("https://www.example.org/sitemap.xml");
+        AbstractSiteMap sitemap = parser.parse(new ByteArrayInputStream(bytes(XML)), url, u -> {
+        });
+        assertEquals(AbstractSiteMap.SitemapType.XML, sitemap.getType());
+        assertTrue(((SiteMap) sitemap).getSiteMapUrls().isEmpty());
+        // the parser is reusable in buffered mode
+        assertEquals(7, ((SiteMap) parser.parseSiteMap(bytes(XML), url)).getSiteMapUrls().size());
+    }
+
+    @Test
+    public void testManyUrls() throws IOException, UnknownFormatException {
+        StringBuilder sb = new StringBuilder("<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">");
+        for (int i = 0; i < 60000; i++) {
+            sb.append("<url><loc>https://www.example.org/").append(i).append("</loc></url>\n");
+        }
+        sb.append("</urlset>");
+        assertSameUrls(false, bytes(sb.toString()), "https://www.example.org/sitemap.xml", 60000);
+    }
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+public class ConcurrentLongHashSetTest {
+
+    @Test
+    public void testAddContains() {
+        // small stripes to exercise resizing
+        ConcurrentLongHashSet set = new ConcurrentLongHashSet(4, 16);
+        int n = 100000;
+        for (int i = 0; i < n; i++) {
+            assertTrue(set.add(Fingerprint.of("https://www.example.org/" + i)));
+        }
+        for (int i = 0; i < n; i++) {
+            assertFalse(set.add(Fingerprint.of("https://www.example.org/" + i)));
+            assertTrue(set.contains(Fingerprint.of("https://www.example.org/" + i)));
+        }
+        assertEquals(n, set.size());
+        assertFalse(set.contains(Fingerprint.of("https://www.example.org/" + n)));
+        assertFalse(set.contains(0));
+        assertTrue(set.estimateMemory() >= 8L * n);
+    }
+
+    @Test
+    public void testSameLowBits() {
+        // keys differing only in the bits selecting the stripe
+        ConcurrentLongHashSet set = new ConcurrentLongHashSet();
+        for (long i = 0; i < 64; i++) {
+            assertTrue(set.add((i << 58) | 1));
+        }
+        assertEquals(64, set.size());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        ConcurrentLongHashSet set = new ConcurrentLongHashSet(8, 1024);
+        int threads = 4;
+        int n = 50000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> added = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // all threads add the same keys
+                added.add(executor.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < n; i++) {
+                        if (set.add(Fingerprint.of("https://www.example.org/" + i))) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            int total = 0;
+            for (Future<Integer> f : added) {
+                total += f.get();
+            }
+            assertEquals(n, total);
+            assertEquals(n, set.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testZeroKey() {
+        ConcurrentLongHashSet set = new ConcurrentLongHashSet();
+        assertThrows(IllegalArgumentException.class, () -> set.add(0));
+    }
+
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class HyperLogLogTest {
+
+    @ParameterizedTest
+    @CsvSource({ "10, 1000", "14, 100000", "14, 1000000", "18, 1000000" })
+    public void testErrorBound(int precision, int n) {
+        HyperLogLog hll = new HyperLogLog(precision);
+        for (int i = 0; i < n; i++) {
+            long hash = Fingerprint.of("https://www.example.org/" + i);
+            hll.add(hash);
+            // duplicates do not change the estimate
+            hll.add(hash);
+        }
+        double error = Math.abs(hll.estimate() - n) / (double) n;
+        assertTrue(error < 3 * hll.getStandardError(), "estimate " + hll.estimate() + " for " + n + " distinct");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 1, 10, 100 })
+    public void testSmallCardinality(int n) {
+        HyperLogLog hll = new HyperLogLog(14);
+        for (int i = 0; i < n; i++) {
+            hll.add(Fingerprint.of("host" + i + ".example.org"));
+        }
+        // linear counting is exact for few elements in many registers
+        assertEquals(n, hll.estimate(), 1.0);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 3, 19 })
+    public void testInvalidPrecision(int precision) {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(precision));
+    }
+
+}
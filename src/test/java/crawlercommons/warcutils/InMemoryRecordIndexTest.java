@@ -0,0 +1,79 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class InMemoryRecordIndexTest {
+
+    @Test
+    public void testPutGet() {
+        InMemoryRecordIndex index = new InMemoryRecordIndex(4);
+        int n = 10000;
+        for (int i = 0; i < n; i++) {
+            int id = index.put("https://www.example.org/sitemap-" + i + ".xml", i % 3, 1000L * i, 200 + (i % 2),
+                    (i % 5) == 0 ? null : "application/xml");
+            assertEquals(i, id);
+        }
+        assertEquals(n, index.size());
+        for (int i = 0; i < n; i++) {
+            int id = index.getId("https://www.example.org/sitemap-" + i + ".xml");
+            assertEquals(i, id);
+            assertEquals("https://www.example.org/sitemap-" + i + ".xml", index.getUrl(id));
+            assertEquals(i % 3, index.getWarcFileId(id));
+            assertEquals(1000L * i, index.getOffset(id));
+            assertEquals(200 + (i % 2), index.getStatus(id));
+            if ((i % 5) == 0) {
+                assertNull(index.getContentType(id));
+            } else {
+                assertEquals("application/xml", index.getContentType(id));
+            }
+        }
+        assertEquals(-1, index.getId("https://www.example.org/not-indexed.xml"));
+    }
+
+    @Test
+    public void testReplace() {
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        int id = index.put("https://www.example.org/sitemap.xml", 0, 100, 404, "text/html");
+        assertEquals(id, index.put("https://www.example.org/sitemap.xml", 1, 200, 200, "application/xml"));
+        assertEquals(1, index.size());
+        assertEquals(1, index.getWarcFileId(id));
+        assertEquals(200, index.getOffset(id));
+        assertEquals(200, index.getStatus(id));
+        assertEquals("application/xml", index.getContentType(id));
+    }
+
+    @Test
+    public void testNonAsciiUrl() {
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        int id = index.put("https://www.example.org/karte-ü.xml", 0, 0, 200, null);
+        assertEquals(id, index.getId("https://www.example.org/karte-ü.xml"));
+        assertEquals("https://www.example.org/karte-ü.xml", index.getUrl(id));
+    }
+
+    @Test
+    public void testOffsetOutOfRange() {
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        assertThrows(IllegalArgumentException.class, () -> index.put("https://www.example.org/", 0, Long.MAX_VALUE, 200, null));
+    }
+
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void testPutGet() {
+        LongIntHashMap map = new LongIntHashMap(4);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextLong();
+            if (key == 0) {
+                continue;
+            }
+            Integer previous = expected.put(key, i);
+            assertEquals(previous == null ? -1 : previous, map.put(key, i));
+        }
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Long, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue(), map.get(e.getKey()));
+        }
+        assertEquals(-1, map.get(0));
+        assertEquals(-1, map.get(1));
+        assertTrue(map.estimateMemory() >= 12L * map.size());
+    }
+
+    @Test
+    public void testReplace() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertEquals(-1, map.put(Fingerprint.of("example.org"), 1));
+        assertEquals(1, map.put(Fingerprint.of("example.org"), 2));
+        assertEquals(1, map.size());
+        assertEquals(2, map.get(Fingerprint.of("example.org")));
+    }
+
+    @Test
+    public void testCollidingSlots() {
+        // keys differing only in the high bits
+        LongIntHashMap map = new LongIntHashMap(16);
+        for (int i = 1; i <= 1000; i++) {
+            map.put(((long) i) << 40, i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, map.get(((long) i) << 40));
+        }
+    }
+
+    @Test
+    public void testZeroKey() {
+        LongIntHashMap map = new LongIntHashMap();
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1));
+    }
+
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedRecordIndexTest {
+
+    @TempDir
+    Path tmp;
+
+    /** index records of two WARC files, in reverse offset order and with URLs not sorted */
+    private static InMemoryRecordIndex createIndex() {
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        for (int i = 99; i >= 0; i--) {
+            index.put("https://www.example" + (i % 7) + ".com/sitemap-" + i + ".xml", i % 2, 1000L * i, 200,
+                    (i % 3) == 0 ? null : "application/xml");
+        }
+        index.put("https://www.example.org/karte-ü.xml", 1, 150000, 404, "text/html; charset=utf-8");
+        return index;
+    }
+
+    private Path createWarcFile(String name) throws IOException {
+        Path warc = tmp.resolve(name);
+        Files.write(warc, new byte[4096]);
+        return warc;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        InMemoryRecordIndex index = createIndex();
+        Path warc = createWarcFile("test.warc.gz");
+        MappedRecordIndex.write(warc.toString(), index, 1);
+        assertTrue(Files.exists(MappedRecordIndex.getSidecarPath(warc.toString())));
+
+        MappedRecordIndex mapped = MappedRecordIndex.open(warc.toString(), 5);
+        assertNotNull(mapped);
+        // only the records of WARC file 1 are written
+        assertEquals(51, mapped.size());
+        long lastOffset = -1;
+        for (int id = 0; id < mapped.size(); id++) {
+            // record IDs follow the WARC offsets
+            assertTrue(mapped.getOffset(id) > lastOffset);
+            lastOffset = mapped.getOffset(id);
+            String url = mapped.getUrl(id);
+            assertEquals(id, mapped.getId(url));
+            int orig = index.getId(url);
+            assertEquals(1, index.getWarcFileId(orig));
+            assertEquals(5, mapped.getWarcFileId(id));
+            assertEquals(index.getOffset(orig), mapped.getOffset(id));
+            assertEquals(index.getStatus(orig), mapped.getStatus(id));
+            assertEquals(index.getContentType(orig), mapped.getContentType(id));
+        }
+        assertEquals(-1, mapped.getId("https://www.example0.com/sitemap-0.xml")); // WARC file 0
+        assertEquals(-1, mapped.getId("https://www.example1.com/sitemap-1.xm"));
+        assertEquals(-1, mapped.getId("https://www.example1.com/sitemap-1.xml0"));
+        assertEquals(-1, mapped.getId(""));
+        int id = mapped.getId("https://www.example.org/karte-ü.xml");
+        assertEquals(150000, mapped.getOffset(id));
+        assertEquals(404, mapped.getStatus(id));
+        assertEquals("text/html; charset=utf-8", mapped.getContentType(id));
+    }
+
+    @Test
+    public void testMissingSidecar() throws IOException {
+        Path warc = createWarcFile("missing.warc.gz");
+        assertNull(MappedRecordIndex.open(warc.toString(), 0));
+    }
+
+    @Test
+    public void testOutdatedSidecar() throws IOException {
+        Path warc = createWarcFile("outdated.warc.gz");
+        MappedRecordIndex.write(warc.toString(), createIndex(), 0);
+        assertNotNull(MappedRecordIndex.open(warc.toString(), 0));
+        Files.setLastModifiedTime(warc, FileTime.fromMillis(Files.getLastModifiedTime(warc).toMillis() + 60000));
+        assertNull(MappedRecordIndex.open(warc.toString(), 0));
+    }
+
+    @Test
+    public void testUnknownFormat() throws IOException {
+        Path warc = createWarcFile("unknown.warc.gz");
+        Files.write(MappedRecordIndex.getSidecarPath(warc.toString()), new byte[64]);
+        assertNull(MappedRecordIndex.open(warc.toString(), 0));
+    }
+
+    @Test
+    public void testTooManyContentTypes() throws IOException {
+        Path warc = createWarcFile("content-types.warc.gz");
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        for (int i = 0; i < MappedRecordIndex.MAX_CONTENT_TYPES - 1; i++) {
+            index.put("https://www.example.com/" + i, 0, i, 200, "text/x-" + i);
+        }
+        assertTrue(MappedRecordIndex.write(warc.toString(), index, 0));
+        MappedRecordIndex mapped = MappedRecordIndex.open(warc.toString(), 0);
+        int id = mapped.getId("https://www.example.com/65534");
+        assertEquals("text/x-65534", mapped.getContentType(id));
+
+        // the content-type dictionary is exhausted, further content types are not indexed
+        index.put("https://www.example.com/65535", 0, 65535, 200, "text/x-65535");
+        assertNull(index.getContentType(index.getId("https://www.example.com/65535")));
+        assertTrue(MappedRecordIndex.write(warc.toString(), index, 0));
+        mapped = MappedRecordIndex.open(warc.toString(), 0);
+        assertEquals("text/x-65534", mapped.getContentType(mapped.getId("https://www.example.com/65534")));
+        assertNull(mapped.getContentType(mapped.getId("https://www.example.com/65535")));
+    }
+
+    @Test
+    public void testMultiRecordIndex() throws IOException {
+        InMemoryRecordIndex index = createIndex();
+        Path warc0 = createWarcFile("multi-0.warc.gz");
+        Path warc1 = createWarcFile("multi-1.warc.gz");
+        MappedRecordIndex.write(warc0.toString(), index, 0);
+        MappedRecordIndex.write(warc1.toString(), index, 1);
+        MultiRecordIndex multi = new MultiRecordIndex();
+        multi.add(MappedRecordIndex.open(warc0.toString(), 0));
+        multi.add(new InMemoryRecordIndex());
+        multi.add(MappedRecordIndex.open(warc1.toString(), 1));
+        assertEquals(index.size(), multi.size());
+        for (int id = 0; id < multi.size(); id++) {
+            String url = multi.getUrl(id);
+            assertEquals(id, multi.getId(url));
+            int orig = index.getId(url);
+            assertEquals(index.getWarcFileId(orig), multi.getWarcFileId(id));
+            assertEquals(index.getOffset(orig), multi.getOffset(id));
+        }
+    }
+
+}
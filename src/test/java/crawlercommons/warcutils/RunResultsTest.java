@@ -0,0 +1,110 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class RunResultsTest {
+
+    private static Logger LOG = LoggerFactory.getLogger(RunResultsTest.class);
+
+    @TempDir
+    Path tmp;
+
+    private static Map<String,Number> counters(long wallMillis, long documents) {
+        Map<String,Number> counters = new LinkedHashMap<>();
+        counters.put("wallMillis", wallMillis);
+        counters.put("documentsProcessed", documents);
+        counters.put("inputBytes", 1000L * documents);
+        counters.put("allocatedBytes", 3000L * documents);
+        counters.put("latencyP99Micros", 250.5);
+        return counters;
+    }
+
+    /** runs taking the given time (±1%) to process 10000 documents */
+    private static RunResults createResults(String version, long wallMillis, int runs) {
+        RunResults results = new RunResults("sitemaps", version);
+        for (int i = 0; i < runs; i++) {
+            results.add(counters(wallMillis + (wallMillis * (i % 3 - 1)) / 100, 10000));
+        }
+        return results;
+    }
+
+    @Test
+    public void testDerivedMetrics() {
+        RunResults results = new RunResults("sitemaps", "1.6");
+        results.add(counters(2000, 10000));
+        assertEquals(1, results.size());
+        assertArrayEquals(new double[] { 5000.0 }, results.values("documentsPerSecond"));
+        assertArrayEquals(new double[] { 5000000.0 }, results.values("inputBytesPerSecond"));
+        assertArrayEquals(new double[] { 3.0 }, results.values("allocatedBytesPerInputByte"));
+        assertEquals(0, results.values("latencyP999Micros").length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "results.json", "results.csv" })
+    public void testRoundTrip(String fileName) throws IOException {
+        RunResults results = createResults("1.6", 2000, 5);
+        Map<String,Number> partial = new LinkedHashMap<>();
+        partial.put("wallMillis", 1000L);
+        partial.put("documentsProcessed", 7L);
+        results.add(partial);
+        Path path = tmp.resolve(fileName);
+        results.write(path);
+
+        RunResults read = RunResults.read(path);
+        assertEquals(results.size(), read.size());
+        for (String key : new String[] { "wallMillis", "documentsProcessed", "inputBytes", "documentsPerSecond",
+                "allocatedBytesPerInputByte", "latencyP99Micros" }) {
+            assertArrayEquals(results.values(key), read.values(key), key);
+        }
+        assertTrue(read.compare(results, LOG).isEmpty());
+    }
+
+    @Test
+    public void testRegression() throws IOException {
+        Path path = tmp.resolve("baseline.json");
+        createResults("1.5", 2000, 5).write(path);
+        RunResults baseline = RunResults.read(path);
+
+        // 2% slower: below threshold
+        assertTrue(createResults("1.6", 2040, 5).compare(baseline, LOG).isEmpty());
+        // faster
+        assertTrue(createResults("1.6", 1500, 5).compare(baseline, LOG).isEmpty());
+
+        List<String> regressions = createResults("1.6", 2500, 5).compare(baseline, LOG);
+        assertEquals(2, regressions.size());
+        assertTrue(regressions.get(0).startsWith("documentsPerSecond"));
+        assertTrue(regressions.get(1).startsWith("inputBytesPerSecond"));
+    }
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright 2026 Crawler-Commons
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package crawlercommons.warcutils;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.netpreserve.jwarc.MediaType;
+import org.netpreserve.jwarc.WarcCompression;
+import org.netpreserve.jwarc.WarcReader;
+import org.netpreserve.jwarc.WarcRecord;
+import org.netpreserve.jwarc.WarcResource;
+import org.netpreserve.jwarc.WarcWriter;
+
+public class WarcFileSplitterTest {
+
+    @TempDir
+    Path tmp;
+
+    /**
+     * Write a WARC file with records of random size. Every tenth record holds
+     * a gzipped WARC record surrounded by random bytes, which is stored
+     * verbatim in the compressed WARC file and must not be taken as range
+     * start.
+     */
+    private Path createWarcFile(String name, WarcCompression compression) throws IOException {
+        Path warc = tmp.resolve(name);
+        Random random = new Random(42);
+        try (FileChannel channel = FileChannel.open(warc, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                        WarcWriter writer = new WarcWriter(channel, compression)) {
+            for (int i = 0; i < 200; i++) {
+                byte[] body;
+                MediaType type;
+                if ((i % 10) == 0) {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    byte[] noise = new byte[4096];
+                    random.nextBytes(noise);
+                    out.write(noise);
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                        gzip.write("WARC/1.0\r\nWARC-Type: resource\r\nContent-Length: 0\r\n\r\n\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    }
+                    random.nextBytes(noise);
+                    out.write(noise);
+                    body = out.toByteArray();
+                    type = MediaType.parse("application/gzip");
+                } else {
+                    body = new byte[random.nextInt(20000)];
+                    random.nextBytes(body);
+                    type = MediaType.OCTET_STREAM;
+                }
+                writer.write(new WarcResource.Builder(URI.create("https://www.example.org/" + i)).body(type, body).build());
+            }
+        }
+        return warc;
+    }
+
+    private static List<Long> recordOffsets(Path warc) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        try (WarcReader reader = new WarcReader(warc)) {
+            for (WarcRecord record : reader) {
+                offsets.add(reader.position());
+            }
+        }
+        return offsets;
+    }
+
+    /** @return offsets of all gzip headers (magic and deflate method) */
+    private static List<Long> gzipHeaders(Path warc) throws IOException {
+        byte[] b = Files.readAllBytes(warc);
+        List<Long> offsets = new ArrayList<>();
+        for (int i = 0; i < b.length - 2; i++) {
+            if ((b[i] & 0xff) == 0x1f && (b[i + 1] & 0xff) == 0x8b && b[i + 2] == 8) {
+                offsets.add((long) i);
+            }
+        }
+        return offsets;
+    }
+
+    @Test
+    public void testSplitAtRecords() throws IOException {
+        Path warc = createWarcFile("test.warc.gz", WarcCompression.GZIP);
+        long size = Files.size(warc);
+        List<Long> offsets = recordOffsets(warc);
+        assertEquals(200, offsets.size());
+        Set<Long> recordStarts = new HashSet<>(offsets);
+        // test data must include gzip headers not starting a record
+        assertTrue(gzipHeaders(warc).size() >= 220);
+        for (int splits : new int[] { 2, 3, 7, 16, 64 }) {
+            long[] bounds = WarcFileSplitter.split(warc.toString(), splits);
+            assertEquals(splits + 1, bounds.length);
+            assertEquals(0, bounds[0]);
+            assertEquals(size, bounds[bounds.length - 1]);
+            for (int i = 1; i < bounds.length; i++) {
+                assertTrue(bounds[i] > bounds[i - 1]);
+            }
+            for (int i = 1; i < bounds.length - 1; i++) {
+                assertTrue(recordStarts.contains(bounds[i]), "range " + i + " does not start at a record: " + bounds[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testMoreSplitsThanRecords() throws IOException {
+        Path warc = createWarcFile("test.warc.gz", WarcCompression.GZIP);
+        long[] bounds = WarcFileSplitter.split(warc.toString(), 1000);
+        // empty ranges are removed
+        assertTrue(bounds.length <= 201);
+        Set<Long> recordStarts = new HashSet<>(recordOffsets(warc));
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertTrue(bounds[i] > bounds[i - 1]);
+            assertTrue(recordStarts.contains(bounds[i]));
+        }
+    }
+
+    @Test
+    public void testSplitByIndex() throws IOException {
+        Path warc = createWarcFile("test.warc.gz", WarcCompression.GZIP);
+        List<Long> offsets = recordOffsets(warc);
+        InMemoryRecordIndex index = new InMemoryRecordIndex();
+        for (int i = 0; i < offsets.size(); i++) {
+            index.put("https://www.example.org/" + i, 0, offsets.get(i), 200, null);
+        }
+        MappedRecordIndex.write(warc.toString(), index, 0);
+        long[] bounds = WarcFileSplitter.split(warc.toString(), 7);
+        assertEquals(8, bounds.length);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertTrue(bounds[i] > bounds[i - 1]);
+            assertTrue(offsets.contains(bounds[i]));
+        }
+    }
+
+    @Test
+    public void testUncompressed() throws IOException {
+        Path warc = createWarcFile("test.warc", WarcCompression.NONE);
+        assertArrayEquals(new long[] { 0, Files.size(warc) }, WarcFileSplitter.split(warc.toString(), 7));
+    }
+
+    @Test
+    public void testNoSplit() throws IOException {
+        Path warc = createWarcFile("test.warc.gz", WarcCompression.GZIP);
+        assertArrayEquals(new long[] { 0, Files.size(warc) }, WarcFileSplitter.split(warc.toString(), 1));
+    }
+
+}